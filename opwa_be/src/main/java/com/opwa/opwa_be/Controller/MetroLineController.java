@@ -1,21 +1,47 @@
 package com.opwa.opwa_be.Controller;
 
+import com.opwa.opwa_be.Service.ConnectionScanService;
+import com.opwa.opwa_be.Service.JourneyPlannerService;
 import com.opwa.opwa_be.Service.MetroLineService;
+import com.opwa.opwa_be.Service.NetworkSnapshotService;
+import com.opwa.opwa_be.Service.NetworkVersionService;
 import com.opwa.opwa_be.Service.StationService;
+import com.opwa.opwa_be.Service.TravelTimeMatrixService;
+import com.opwa.opwa_be.model.LineTimetable;
 import com.opwa.opwa_be.model.MetroLine;
 import com.opwa.opwa_be.model.Station;
 import com.opwa.opwa_be.model.Trip;
 import com.opwa.opwa_be.Repository.MetroLineRepo;
 import com.opwa.opwa_be.Repository.TripRepo;
 import com.opwa.opwa_be.config.JwtService;
+import com.opwa.opwa_be.dto.JourneyOption;
 import com.opwa.opwa_be.dto.MetroLineFullDetailsDTO;
+import com.opwa.opwa_be.dto.ProfileEntry;
+import com.opwa.opwa_be.dto.TravelTimeMatrixDTO;
+import com.opwa.opwa_be.dto.TripFilter;
+import com.opwa.opwa_be.dto.TripGenerationReport;
+import com.opwa.opwa_be.dto.TripPage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
@@ -37,16 +63,46 @@ public class MetroLineController {
     @Autowired
     private StationService stationService;
 
+    @Autowired
+    private JourneyPlannerService journeyPlannerService;
+
+    @Autowired
+    private ConnectionScanService connectionScanService;
+
+    @Autowired
+    private TravelTimeMatrixService travelTimeMatrixService;
+
+    @Autowired
+    private NetworkVersionService networkVersionService;
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Values streamed per flush; each value is written without flushing the response
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+
+    private ObjectWriter streamWriter;
+
+    @PostConstruct
+    void initStreamWriter() {
+        streamWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
     @GetMapping("/get-all-metro-lines")
-    public ResponseEntity<List<MetroLine>> getAllLines() {
-        return ResponseEntity.ok(metroLineService.findAllWithStations());
+    public ResponseEntity<byte[]> getAllLines(WebRequest webRequest) {
+        NetworkSnapshotService.Payload payload = networkSnapshotService.getPayload(NetworkSnapshotService.Kind.METRO_LINES);
+        return networkSnapshotService.toResponse(payload, webRequest, false);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<MetroLine> getLineById(@PathVariable String id) {
+    public ResponseEntity<MetroLine> getLineById(@PathVariable String id, WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         MetroLine line = metroLineService.findLineByIdWithStations(id);
         if (line.getStations() != null) {
             line.getStations().sort((a, b) -> {
@@ -136,31 +192,95 @@ public class MetroLineController {
     }
 
     @PostMapping("/generate-trips")
-    public ResponseEntity<?> generateTripsForAllLinesIndividually() {
-        List<MetroLine> lines = metroLineService.findAllWithStations();
-        List<String> generated = new java.util.ArrayList<>();
-        for (MetroLine line : lines) {
-            if (line.getStationIds() != null && line.getStationIds().size() > 1) {
-                metroLineService.generateTripsForLine(line, java.time.LocalTime.of(22, 0));
-                generated.add(line.getLineId());
-            }
-        }
-        return ResponseEntity.ok(java.util.Map.of(
+    public ResponseEntity<?> generateTripsForAllLinesIndividually(
+            @RequestParam(required = false) String lastDeparture,
+            @RequestParam(defaultValue = "true") boolean parallel) {
+        LocalTime lastDep = (lastDeparture != null)
+                ? LocalTime.parse(lastDeparture)
+                : LocalTime.of(22, 0); // default to 10pm
+
+        long start = System.currentTimeMillis();
+        List<TripGenerationReport> reports = metroLineService.generateTripsForAllLines(lastDep, parallel);
+        List<String> generated = reports.stream()
+                .filter(r -> r.isSuccess() && r.getTripCount() > 0)
+                .map(TripGenerationReport::getLineId)
+                .toList();
+        List<TripGenerationReport> failures = reports.stream()
+                .filter(r -> !r.isSuccess())
+                .toList();
+        return ResponseEntity.ok(Map.of(
             "linesProcessed", generated.size(),
-            "lines", generated
+            "lines", generated,
+            "failures", failures,
+            "reports", reports,
+            "parallel", parallel,
+            "totalDurationMillis", System.currentTimeMillis() - start
         ));
     }
 
     @GetMapping("/{id}/trips")
-    public ResponseEntity<List<Trip>> getTripsForLine(@PathVariable String id) {
-        return ResponseEntity.ok(metroLineService.getTripsForLine(id));
+    public ResponseEntity<List<Trip>> getTripsForLine(
+            @PathVariable String id,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String direction) {
+        if (from == null && to == null && direction == null) {
+            return ResponseEntity.ok(metroLineService.getTripsForLine(id));
+        }
+        return ResponseEntity.ok(metroLineService.getTripsForLine(id, tripFilter(from, to, direction, 0)));
+    }
+
+    // Keyset-paginated trips; pass the returned nextCursor back as cursor for the following page
+    @GetMapping("/{id}/trips/page")
+    public ResponseEntity<TripPage> getTripPageForLine(
+            @PathVariable String id,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(metroLineService.getTripPage(id, null, tripFilter(from, to, direction, limit), cursor));
+    }
+
+    // Compact timetable: one stop pattern per direction plus its departure minutes
+    @GetMapping("/{id}/timetable")
+    public ResponseEntity<LineTimetable> getTimetableForLine(@PathVariable String id, WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
+        return ResponseEntity.ok(metroLineService.getTimetableForLine(id));
     }
 
     @GetMapping("/{lineId}/stations/{stationId}/trips")
     public ResponseEntity<List<Trip>> getTripsForStationInLine(
             @PathVariable String lineId,
-            @PathVariable String stationId) {
-        return ResponseEntity.ok(metroLineService.getTripsForStationInLine(lineId, stationId));
+            @PathVariable String stationId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String direction) {
+        return ResponseEntity.ok(metroLineService.getTripsForStationInLine(
+            lineId, stationId, tripFilter(from, to, direction, 0)));
+    }
+
+    // from/to are matched against the time the trip serves this station
+    @GetMapping("/{lineId}/stations/{stationId}/trips/page")
+    public ResponseEntity<TripPage> getTripPageForStationInLine(
+            @PathVariable String lineId,
+            @PathVariable String stationId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(metroLineService.getTripPage(
+            lineId, stationId, tripFilter(from, to, direction, limit), cursor));
+    }
+
+    private static TripFilter tripFilter(String from, String to, String direction, int limit) {
+        TripFilter filter = new TripFilter();
+        filter.setFrom(from != null ? LocalTime.parse(from) : null);
+        filter.setTo(to != null ? LocalTime.parse(to) : null);
+        filter.setReturnTrip(MetroLineService.parseDirection(direction));
+        filter.setLimit(limit);
+        return filter;
     }
 
     @DeleteMapping("/trips")
@@ -179,11 +299,28 @@ public class MetroLineController {
     }
 
     @GetMapping("/trips")
-    public ResponseEntity<List<Trip>> getAllTrips() {
+    public ResponseEntity<List<Trip>> getAllTrips(WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         List<Trip> allTrips = metroLineService.getAllTrips();
         return ResponseEntity.ok(allTrips);
     }
 
+    // Same trips as /trips, written while the cursors are read instead of after building the list.
+    // format=ndjson writes one trip per line, anything else a single JSON array.
+    @GetMapping("/trips/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllTrips(@RequestParam(defaultValue = "json") String format) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = openGenerator(out)) {
+                if (!ndjson) generator.writeStartArray();
+                int[] written = {0};
+                metroLineService.streamAllTrips(trip -> writeStreamed(generator, trip, ndjson, ++written[0]));
+                if (!ndjson) generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(streamMediaType(ndjson)).body(body);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateMetroLine(
             @PathVariable String id,
@@ -206,16 +343,112 @@ public class MetroLineController {
         );
     }
 
+    // Multi-line journeys with transfers; returns the earliest-arrival / fewest-transfers Pareto set
+    @GetMapping("/plan-journey")
+    public ResponseEntity<List<JourneyOption>> planJourney(
+            @RequestParam String fromStationId,
+            @RequestParam String toStationId,
+            @RequestParam(required = false) String departureTime,
+            @RequestParam(defaultValue = "3") int maxTransfers
+    ) {
+        LocalTime departure = (departureTime != null && !departureTime.isBlank())
+                ? LocalTime.parse(departureTime)
+                : LocalTime.now();
+        return ResponseEntity.ok(
+            journeyPlannerService.planJourney(fromStationId, toStationId, departure, maxTransfers)
+        );
+    }
+
+    // Pareto-optimal (departure, arrival) pairs for every departure in the [from, to] window
+    @GetMapping("/profile")
+    public ResponseEntity<List<ProfileEntry>> getProfile(
+            @RequestParam String fromStationId,
+            @RequestParam String toStationId,
+            @RequestParam String from,
+            @RequestParam String to
+    ) {
+        return ResponseEntity.ok(
+            connectionScanService.profile(fromStationId, toStationId, LocalTime.parse(from), LocalTime.parse(to))
+        );
+    }
+
+    // Minimum in-vehicle minutes and hop counts between every pair of stations
+    @GetMapping("/travel-time-matrix")
+    public ResponseEntity<TravelTimeMatrixDTO> getTravelTimeMatrix() {
+        return ResponseEntity.ok(travelTimeMatrixService.getMatrix());
+    }
+
+    @GetMapping("/travel-time")
+    public ResponseEntity<Map<String, Object>> getTravelTime(
+            @RequestParam String fromStationId,
+            @RequestParam String toStationId
+    ) {
+        return ResponseEntity.ok(travelTimeMatrixService.getTravelTime(fromStationId, toStationId));
+    }
+
     @GetMapping("/{id}/full-details")
-    public ResponseEntity<MetroLineFullDetailsDTO> getFullDetails(@PathVariable String id) {
+    public ResponseEntity<MetroLineFullDetailsDTO> getFullDetails(@PathVariable String id, WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         MetroLineFullDetailsDTO dto = metroLineService.getFullDetailsForLine(id);
         return ResponseEntity.ok(dto);
     }
 
     @GetMapping("/full-details")
-    public ResponseEntity<List<MetroLineFullDetailsDTO>> getAllFullDetails() {
-        List<MetroLineFullDetailsDTO> dtos = metroLineService.getAllFullDetails();
-        return ResponseEntity.ok(dtos);
+    public ResponseEntity<byte[]> getAllFullDetails(WebRequest webRequest) {
+        NetworkSnapshotService.Payload payload = networkSnapshotService.getPayload(NetworkSnapshotService.Kind.FULL_DETAILS);
+        return networkSnapshotService.toResponse(payload, webRequest, false);
+    }
+
+    // Streaming /full-details: each line's object is written field by field and its trips
+    // array is filled straight from the trip cursor. format=ndjson writes one line per row.
+    @GetMapping("/full-details/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllFullDetails(@RequestParam(defaultValue = "json") String format) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = openGenerator(out)) {
+                if (!ndjson) generator.writeStartArray();
+                metroLineService.streamAllFullDetails((details, trips) -> {
+                    ObjectNode header = objectMapper.valueToTree(details);
+                    header.remove("trips");
+                    generator.writeStartObject();
+                    for (Map.Entry<String, JsonNode> field : header.properties()) {
+                        generator.writeFieldName(field.getKey());
+                        generator.writeTree(field.getValue());
+                    }
+                    generator.writeArrayFieldStart("trips");
+                    int[] written = {0};
+                    trips.accept(trip -> writeStreamed(generator, trip, false, ++written[0]));
+                    generator.writeEndArray();
+                    generator.writeEndObject();
+                    if (ndjson) generator.writeRaw('\n');
+                    generator.flush();
+                });
+                if (!ndjson) generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(streamMediaType(ndjson)).body(body);
+    }
+
+    private JsonGenerator openGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        // The servlet container owns the response stream
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        return generator;
+    }
+
+    private void writeStreamed(JsonGenerator generator, Object value, boolean ndjson, int count) {
+        try {
+            streamWriter.writeValue(generator, value);
+            if (ndjson) generator.writeRaw('\n');
+            if (count % STREAM_FLUSH_INTERVAL == 0) generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MediaType streamMediaType(boolean ndjson) {
+        return ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
     }
 
     // Insert station at specific position in line (POST)
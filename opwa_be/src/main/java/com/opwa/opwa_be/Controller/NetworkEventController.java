@@ -0,0 +1,32 @@
+package com.opwa.opwa_be.Controller;
+
+import com.opwa.opwa_be.Service.NetworkEventBroadcaster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/events")
+public class NetworkEventController {
+
+    @Autowired
+    private NetworkEventBroadcaster networkEventBroadcaster;
+
+    // Server-sent line and suspension changes, optionally narrowed to some lines and/or stations
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestParam(required = false) List<String> lineIds,
+            @RequestParam(required = false) List<String> stationIds) {
+        return networkEventBroadcaster.subscribe(lineIds, stationIds);
+    }
+
+    @GetMapping("/subscribers")
+    public Map<String, Object> getSubscriberCount() {
+        return Map.of("subscribers", networkEventBroadcaster.getSubscriberCount());
+    }
+}
@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.opwa.opwa_be.Repository.MetroLineRepo;
 import com.opwa.opwa_be.Repository.StationRepo;
@@ -14,13 +15,18 @@ import com.opwa.opwa_be.config.JwtService;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+import com.opwa.opwa_be.Service.StationLineIndex;
+import com.opwa.opwa_be.Service.NetworkSnapshotService;
+import com.opwa.opwa_be.Service.NetworkVersionService;
+import com.opwa.opwa_be.Service.StationSearchIndex;
 import com.opwa.opwa_be.Service.StationService;
-import org.apache.commons.text.similarity.LevenshteinDistance;
+import com.opwa.opwa_be.Service.StationSpatialIndex;
+import com.opwa.opwa_be.dto.NearbyStation;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/stations")
@@ -38,32 +44,66 @@ public class StationController {
     @Autowired
     private JwtService jwtService;
 
-    @GetMapping("/get-all-stations")
-    public ResponseEntity<List<Station>> getAllStations() {
-        List<Station> stations = stationRepo.findAll();
+    @Autowired
+    private StationSpatialIndex stationSpatialIndex;
 
-        if (stations.isEmpty()) {
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.ok(stations);
+    @Autowired
+    private StationSearchIndex stationSearchIndex;
+
+    @Autowired
+    private StationLineIndex stationLineIndex;
+
+    @Autowired
+    private NetworkVersionService networkVersionService;
+
+    @Autowired
+    private NetworkSnapshotService networkSnapshotService;
+
+    @GetMapping("/get-all-stations")
+    public ResponseEntity<byte[]> getAllStations(WebRequest webRequest) {
+        NetworkSnapshotService.Payload payload = networkSnapshotService.getPayload(NetworkSnapshotService.Kind.STATIONS);
+        return networkSnapshotService.toResponse(payload, webRequest, true);
     }
 
     @GetMapping("/{id}")
-    public Station getStationById(@PathVariable String id) {
+    public Station getStationById(@PathVariable String id, WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         return stationRepo.findById(id).orElse(null);
     }
 
     @GetMapping("/search")
-    public List<Station> searchStationsByName(@RequestParam String name) {
-        List<Station> allStations = stationRepo.findAll();
-        LevenshteinDistance ld = new LevenshteinDistance();
-        String query = name.toLowerCase();
-        return allStations.stream()
-            .filter(station -> {
-                String stationName = station.getStationName().toLowerCase();
-                return stationName.contains(query) || ld.apply(stationName, query) <= 2;
-            })
-            .collect(Collectors.toList());
+    public List<Station> searchStationsByName(
+            @RequestParam String name,
+            @RequestParam(defaultValue = "20") int limit) {
+        return stationSearchIndex.search(name, limit);
+    }
+
+    @GetMapping("/nearest")
+    public ResponseEntity<List<NearbyStation>> getNearestStations(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "5") int k) {
+        if (!isValidCoordinate(lat, lng) || k < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(stationSpatialIndex.findNearest(lat, lng, k));
+    }
+
+    @GetMapping("/within")
+    public ResponseEntity<List<Station>> getStationsWithin(
+            @RequestParam double minLat,
+            @RequestParam double minLng,
+            @RequestParam double maxLat,
+            @RequestParam double maxLng) {
+        if (!isValidCoordinate(minLat, minLng) || !isValidCoordinate(maxLat, maxLng)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(stationSpatialIndex.findWithin(minLat, minLng, maxLat, maxLng));
+    }
+
+    // Also rejects NaN, which fails every comparison
+    private static boolean isValidCoordinate(double lat, double lng) {
+        return lat >= -90 && lat <= 90 && lng >= -180 && lng <= 180;
     }
 
     @GetMapping("/marker/{marker}")
@@ -100,7 +140,13 @@ public class StationController {
 
     @GetMapping("/{stationId}/lines")
     public List<MetroLine> getLinesForStation(@PathVariable String stationId) {
-        return metroLineRepo.findByStationIdsContaining(stationId);
+        return metroLineRepo.findAllById(stationLineIndex.getLineIds(stationId));
+    }
+
+    // Line ids serving each of the given stations, in one call
+    @GetMapping("/lines")
+    public Map<String, List<String>> getLineIdsForStations(@RequestParam List<String> stationIds) {
+        return stationLineIndex.getLineIds(stationIds);
     }
 
     // Utility method for role check (take token the same way as UserController)
@@ -1,12 +1,17 @@
 package com.opwa.opwa_be.Controller;
 
 import com.opwa.opwa_be.Service.MetroLineService;
+import com.opwa.opwa_be.Service.NetworkVersionService;
+import com.opwa.opwa_be.Service.SuspensionImpactService;
 import com.opwa.opwa_be.Service.SuspensionService;
+import com.opwa.opwa_be.dto.SuspensionImpact;
+import com.opwa.opwa_be.dto.SuspensionImpactRequest;
 import com.opwa.opwa_be.model.Suspension;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import com.opwa.opwa_be.config.JwtService;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,6 +29,12 @@ public class SuspensionController {
     @Autowired
     private MetroLineService metroLineService;
 
+    @Autowired
+    private NetworkVersionService networkVersionService;
+
+    @Autowired
+    private SuspensionImpactService suspensionImpactService;
+
     @Autowired
     private JwtService jwtService;
 
@@ -40,7 +51,9 @@ public class SuspensionController {
 
     @GetMapping
     public ResponseEntity<List<Suspension>> getAllSuspensions(
-            @RequestParam(required = false) Boolean active) {
+            @RequestParam(required = false) Boolean active,
+            WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         if (active != null) {
             return ResponseEntity.ok(suspensionService.getSuspensionsByStatus(active));
         }
@@ -48,14 +61,17 @@ public class SuspensionController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Suspension> getSuspensionById(@PathVariable String id) {
+    public ResponseEntity<Suspension> getSuspensionById(@PathVariable String id, WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         return ResponseEntity.ok(suspensionService.getSuspensionById(id));
     }
 
     @GetMapping("/line/{lineId}")
     public ResponseEntity<List<Suspension>> getSuspensionsByLine(
             @PathVariable String lineId,
-            @RequestParam(required = false) Boolean active) {
+            @RequestParam(required = false) Boolean active,
+            WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         if (active != null) {
             return ResponseEntity.ok(
                     suspensionService.getActiveSuspensionsForLine(lineId, active));
@@ -65,7 +81,9 @@ public class SuspensionController {
 
     @GetMapping("/station/{stationId}")
     public ResponseEntity<List<Suspension>> getSuspensionsAffectingStation(
-            @PathVariable String stationId) {
+            @PathVariable String stationId,
+            WebRequest webRequest) {
+        if (networkVersionService.checkNotModified(webRequest)) return null;
         return ResponseEntity.ok(
                 suspensionService.getSuspensionsAffectingStation(stationId));
     }
@@ -101,6 +119,45 @@ public class SuspensionController {
         return ResponseEntity.ok(created);
     }
 
+    // What-if: trips, station pairs and travel time a drafted suspension would cost, without saving it
+    @PostMapping("/line/{lineId}/impact")
+    public ResponseEntity<SuspensionImpact> analyzeLineSuspension(
+            @PathVariable String lineId,
+            @RequestBody SuspensionImpactRequest request,
+            HttpServletRequest httpRequest) {
+        if (!hasAdminOrOperatorRole(httpRequest)) {
+            return ResponseEntity.status(403).build();
+        }
+        request.setLineId(lineId);
+        if (!isValidDraft(request)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(suspensionImpactService.analyze(List.of(request)));
+    }
+
+    // Several drafts at once, one per line; the lines are analyzed in parallel
+    @PostMapping("/impact")
+    public ResponseEntity<SuspensionImpact> analyzeSuspensions(
+            @RequestBody List<SuspensionImpactRequest> requests,
+            HttpServletRequest httpRequest) {
+        if (!hasAdminOrOperatorRole(httpRequest)) {
+            return ResponseEntity.status(403).build();
+        }
+        if (requests == null || requests.isEmpty() || !requests.stream().allMatch(this::isValidDraft)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(suspensionImpactService.analyze(requests));
+    }
+
+    // A draft needs its line and, when it names stations, no blank entries among them
+    private boolean isValidDraft(SuspensionImpactRequest draft) {
+        if (draft == null || draft.getLineId() == null || draft.getLineId().isBlank()) {
+            return false;
+        }
+        return draft.getAffectedStationIds() == null
+            || draft.getAffectedStationIds().stream().allMatch(id -> id != null && !id.isBlank());
+    }
+
     @PatchMapping("/{id}/resolve")
     public ResponseEntity<Void> resolveSuspension(
             @PathVariable String id,
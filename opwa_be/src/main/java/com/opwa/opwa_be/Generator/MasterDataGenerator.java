@@ -23,7 +23,7 @@ public class MasterDataGenerator {
 
             // Auto-generate trips for all lines with lastDeparture = 22:00
             System.out.println("🚆 Generating trips for all metro lines (lastDeparture=22:00)...");
-            metroLineService.generateTripsForAllLines(LocalTime.of(22, 0));
+            metroLineService.generateTripsForAllLines(LocalTime.of(22, 0), true);
             System.out.println("✅ Trips generated for all lines!");
         } catch (Exception e) {
             System.err.println("❌ Data generation failed: " + e.getMessage());
@@ -44,6 +44,7 @@ public class MetroLineGenerator implements CommandLineRunner {
 
         // Create Red Line (active, not suspended)
         MetroLine redLine = new MetroLine();
+        redLine.setLineId("LN1");
         redLine.setLineName("Red Line");
         redLine.setStationIds(redLineStations);
         //redLine.setTotalDuration(30);
@@ -55,6 +56,7 @@ public class MetroLineGenerator implements CommandLineRunner {
 
         // Create Blue Line (suspended, will be set inactive if 3+ stations are suspended)
         MetroLine blueLine = new MetroLine();
+        blueLine.setLineId("LN2");
         blueLine.setLineName("Blue Line");
         blueLine.setStationIds(blueLineStations);
         //blueLine.setTotalDuration(25);
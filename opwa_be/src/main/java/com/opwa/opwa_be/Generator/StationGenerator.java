@@ -1,10 +1,13 @@
 package com.opwa.opwa_be.Generator;
 
 import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.Service.SequenceGeneratorService;
+import com.opwa.opwa_be.event.StationChangedEvent;
 import com.opwa.opwa_be.model.Station;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -13,10 +16,20 @@ public class StationGenerator implements CommandLineRunner {
     @Autowired
     private StationRepo stationRepo;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SequenceGeneratorService sequenceGeneratorService;
+
+    private long nextStationNumber;
+
     @Override
     public void run(String... args) throws Exception {
         // Clear existing data
         stationRepo.deleteAll();
+        // Seeded stations are numbered from ST1 explicitly; the shared sequence only moves forward
+        nextStationNumber = 1;
 
         // Line 1 (Red)
         createStation("Ben Thanh", 10.770814000000017, 106.6974889, "red");
@@ -52,11 +65,16 @@ public class StationGenerator implements CommandLineRunner {
         // createStation("Nguyen Tri Phuong", 10.7625, 106.6775, "green");
         // createStation("Ba Thang Hai", 10.7622, 106.6698, "green");
         // createStation("Ly Thai To", 10.7620, 106.6630, "green");
+
+        sequenceGeneratorService.advanceTo(SequenceGeneratorService.STATION_SEQUENCE, nextStationNumber - 1, () -> 0);
+
+        // Stations were rewritten behind StationService, drop anything cached from before
+        eventPublisher.publishEvent(StationChangedEvent.allStations());
     }
 
     private void createStation(String name, double lat, double lng, String marker) {
         Station station = new Station();
-        station.setStationId("ST" + (stationRepo.count() + 1));
+        station.setStationId("ST" + nextStationNumber++);
         station.setStationName(name);
         station.setLatitude(lat);
         station.setLongitude(lng);
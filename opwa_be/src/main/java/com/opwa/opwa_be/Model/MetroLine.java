@@ -1,5 +1,7 @@
 package com.opwa.opwa_be.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
@@ -29,6 +31,15 @@ public class MetroLine {
     
     // Store station IDs
     private List<String> stationIds;
+
+    // Inputs the stored trips were generated from, used to skip no-op regenerations.
+    // Server-side bookkeeping only: never serialized, never bound from a request body
+    @JsonIgnore
+    private String tripInputsSignature;
+
+    // Signature of the undisrupted trips set aside while suspensions degrade the timetable
+    @JsonIgnore
+    private String backupTripInputsSignature;
     
     // Transient field for populated stations
     @Transient
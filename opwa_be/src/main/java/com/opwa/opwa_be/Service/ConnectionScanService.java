@@ -0,0 +1,78 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.MetroLineRepo;
+import com.opwa.opwa_be.dto.ProfileEntry;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.event.TripsRegeneratedEvent;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Trip;
+import com.opwa.opwa_be.planner.ConnectionScanRouter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Profile queries ("every good departure between 07:00 and 09:00") over an in-memory connection array
+@Service
+public class ConnectionScanService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionScanService.class);
+
+    @Autowired
+    private MetroLineRepo metroLineRepo;
+
+    @Autowired
+    private TripStorageService tripStorageService;
+
+    @Autowired
+    private TransitNetworkService transitNetworkService;
+
+    private volatile ConnectionScanRouter router;
+    // Bumped by every invalidation; a rebuild that overlapped one is returned but not published
+    private final AtomicLong generation = new AtomicLong();
+
+    @EventListener
+    public void onTripsRegenerated(TripsRegeneratedEvent event) {
+        invalidate();
+    }
+
+    // Station coordinates decide the walking transfers the router's footpaths come from
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        router = null;
+    }
+
+    public List<ProfileEntry> profile(String fromStationId, String toStationId, LocalTime from, LocalTime to) {
+        return getRouter().profile(fromStationId, toStationId,
+            LineTimetable.timeToMinutes(from), LineTimetable.timeToMinutes(to));
+    }
+
+    private ConnectionScanRouter getRouter() {
+        ConnectionScanRouter current = router;
+        if (current != null) return current;
+        synchronized (this) {
+            if (router != null) return router;
+            long buildGeneration = generation.get();
+            List<Trip> trips = metroLineRepo.findAll().stream()
+                .flatMap(line -> tripStorageService.findTrips(line).stream())
+                .toList();
+            ConnectionScanRouter built = ConnectionScanRouter.build(trips, transitNetworkService.getNetwork());
+            log.info("Built connection scan array with {} connections", built.connectionCount());
+            if (generation.get() == buildGeneration) {
+                router = built;
+            }
+            return built;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.dto.JourneyOption;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.planner.RaptorRouter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.List;
+
+@Service
+public class JourneyPlannerService {
+
+    @Autowired
+    private TransitNetworkService transitNetworkService;
+
+    // Pareto set of journeys: each option arrives earlier than every option with fewer transfers
+    public List<JourneyOption> planJourney(String fromStationId, String toStationId,
+                                           LocalTime departureTime, int maxTransfers) {
+        RaptorRouter router = new RaptorRouter(transitNetworkService.getNetwork());
+        return router.route(fromStationId, toStationId,
+            LineTimetable.timeToMinutes(departureTime), Math.max(0, maxTransfers));
+    }
+}
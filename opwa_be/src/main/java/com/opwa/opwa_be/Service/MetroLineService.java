@@ -3,31 +3,54 @@ package com.opwa.opwa_be.Service;
 import com.opwa.opwa_be.Repository.MetroLineRepo;
 import com.opwa.opwa_be.Repository.StationRepo;
 import com.opwa.opwa_be.Repository.SuspensionRepo;
-import com.opwa.opwa_be.Repository.TripRepo;
 import com.opwa.opwa_be.dto.MetroLineFullDetailsDTO;
+import com.opwa.opwa_be.dto.TripFilter;
+import com.opwa.opwa_be.dto.TripGenerationReport;
+import com.opwa.opwa_be.dto.TripPage;
+import com.opwa.opwa_be.event.MetroLineChangedEvent;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
+import com.opwa.opwa_be.model.LineTimetable;
 import com.opwa.opwa_be.model.MetroLine;
 import com.opwa.opwa_be.model.Station;
 import com.opwa.opwa_be.model.Suspension;
 import com.opwa.opwa_be.model.Trip;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class MetroLineService {
     
     private static final Logger log = LoggerFactory.getLogger(MetroLineService.class);
+
+    private static final LocalTime DEFAULT_LAST_DEPARTURE = TripBuilder.DEFAULT_LAST_DEPARTURE;
     
     @Autowired
     private MetroLineRepo metroLineRepo;
@@ -36,14 +59,36 @@ public class MetroLineService {
     private StationRepo stationRepo;
 
     @Autowired
-    private SuspensionRepo suspensionRepo;
+    private StationCache stationCache;
+
+    @Autowired
+    private SequenceGeneratorService sequenceGeneratorService;
 
     @Autowired
-    private TripRepo tripRepo;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SuspensionRepo suspensionRepo;
 
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    private TripStorageService tripStorageService;
+
+    @Autowired
+    private TripBuilder tripBuilder;
+
+    @Autowired
+    private TripSearchIndex tripSearchIndex;
+
+    @Autowired
+    private SuspensionOverlay suspensionOverlay;
+
+    @Autowired
+    @Qualifier("tripGenerationExecutor")
+    private ExecutorService tripGenerationExecutor;
+
     public MetroLine findLineByIdWithStations(String id) {
         MetroLine line = metroLineRepo.findById(id)
             .orElseThrow(() -> new RuntimeException("Metro line not found with id: " + id));
@@ -66,17 +111,13 @@ public class MetroLineService {
 
     public void deleteAllLines() {
         metroLineRepo.deleteAll();
+        eventPublisher.publishEvent(MetroLineChangedEvent.allLines());
     }
 
     public MetroLine createMetroLine(MetroLine metroLine) {
-        if (metroLine.getLineId() == null) {
-            int maxNumber = metroLineRepo.findAll().stream()
-                .map(m -> m.getLineId().substring(2))
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0);
-            metroLine.setLineId(String.format("LN%d", maxNumber + 1));
-        }
+        // A new line has no trips yet, whatever the caller sent
+        metroLine.setTripInputsSignature(null);
+        metroLine.setBackupTripInputsSignature(null);
         // Automatically calculate totalDuration
         metroLine.setTotalDuration(calculateTotalDuration(metroLine));
         metroLine.setUpdatedAt(LocalDateTime.now());
@@ -86,7 +127,36 @@ public class MetroLineService {
             metroLine.setActive(false);
         }
 
-        return metroLineRepo.save(metroLine);
+        MetroLine saved = insertMetroLine(metroLine);
+        eventPublisher.publishEvent(new MetroLineChangedEvent(saved.getLineId(), saved));
+        return saved;
+    }
+
+    // New lines are inserted, never upserted, so an id collision fails instead of overwriting a line
+    private MetroLine insertMetroLine(MetroLine metroLine) {
+        LongSupplier seed = () -> SequenceGeneratorService.maxTrailingNumber(
+            metroLineRepo.findAll().stream().map(MetroLine::getLineId));
+        if (metroLine.getLineId() != null) {
+            MetroLine saved;
+            try {
+                saved = metroLineRepo.insert(metroLine);
+            } catch (DuplicateKeyException e) {
+                throw new RuntimeException("Metro line already exists with id: " + metroLine.getLineId());
+            }
+            // Keep the sequence ahead of the explicit id so it never hands that number out later
+            sequenceGeneratorService.advanceTo(SequenceGeneratorService.METRO_LINE_SEQUENCE,
+                SequenceGeneratorService.maxTrailingNumber(Stream.of(saved.getLineId())), seed);
+            return saved;
+        }
+        while (true) {
+            long number = sequenceGeneratorService.next(SequenceGeneratorService.METRO_LINE_SEQUENCE, seed);
+            metroLine.setLineId(String.format("LN%d", number));
+            try {
+                return metroLineRepo.insert(metroLine);
+            } catch (DuplicateKeyException e) {
+                // Taken by an explicitly assigned id; move on to the next number
+            }
+        }
     }
 
     public List<Station> getStationsForLine(String lineId) {
@@ -116,13 +186,13 @@ public class MetroLineService {
 
     public List<MetroLine> findAllWithStations() {
         List<MetroLine> lines = metroLineRepo.findAll();
-        lines.forEach(this::populateStations);
+        populateStations(lines);
         return lines;
     }
 
     public List<MetroLine> findByActiveStatus(boolean isActive) {
         List<MetroLine> lines = metroLineRepo.findByIsActive(isActive);
-        lines.forEach(this::populateStations);
+        populateStations(lines);
         return lines;
     }
 
@@ -130,7 +200,9 @@ public class MetroLineService {
         MetroLine line = metroLineRepo.findById(id).orElseThrow();
         line.setActive(isActive);
         line.setUpdatedAt(LocalDateTime.now());
-        return metroLineRepo.save(line);
+        MetroLine saved = metroLineRepo.save(line);
+        eventPublisher.publishEvent(new MetroLineChangedEvent(saved.getLineId(), saved));
+        return saved;
     }
 
     public void updateStationsAndRegenerateTrips(MetroLine line, List<String> newStationIds, String reason) {
@@ -140,8 +212,88 @@ public class MetroLineService {
         line.setTotalDuration(calculateTotalDuration(line));
         line.setUpdatedAt(LocalDateTime.now());
         metroLineRepo.save(line);
-        log.info("Regenerating trips for ALL MetroLines due to: {} (triggered by line {})", reason, line.getLineId());
-        generateTripsForAllLines();
+        eventPublisher.publishEvent(new MetroLineChangedEvent(line.getLineId(), line));
+        log.info("Regenerating trips for MetroLine {} due to: {}", line.getLineId(), reason);
+        regenerateTripsIfChanged(line);
+    }
+
+    public boolean regenerateTripsIfChanged(MetroLine line) {
+        return regenerateTripsIfChanged(line, DEFAULT_LAST_DEPARTURE);
+    }
+
+    // Only rebuild the line's trips when the inputs behind them actually changed
+    public boolean regenerateTripsIfChanged(MetroLine line, LocalTime lastDeparture) {
+        if (tripStorageService.getStorageMode() == TripStorageService.StorageMode.VIRTUAL) {
+            // Virtual timetables are derived from the line on read, nothing to rewrite
+            tripStorageService.invalidate(line.getLineId());
+            return false;
+        }
+        Set<String> closedStationIds = suspensionOverlay.getClosedStationIds(line);
+        String signature = tripBuilder.buildInputsSignature(line, lastDeparture, closedStationIds);
+        if (signature.equals(line.getTripInputsSignature())) {
+            log.info("Trips for MetroLine {} are up to date, skipping regeneration", line.getLineId());
+            return false;
+        }
+        if (!closedStationIds.isEmpty()) {
+            // Entering a disruption: set the undisrupted trips aside so resolving it is a rename
+            String normalSignature = tripBuilder.buildInputsSignature(line, lastDeparture);
+            if (normalSignature.equals(line.getTripInputsSignature()) && tripStorageService.backupTrips(line.getLineId())) {
+                saveBackupTripInputsSignature(line, normalSignature);
+            }
+        } else if (line.getBackupTripInputsSignature() != null) {
+            // Leaving it: the backup is reused only if the line was not edited in the meantime
+            boolean restored = signature.equals(line.getBackupTripInputsSignature())
+                && tripStorageService.restoreTrips(line.getLineId());
+            if (!restored) tripStorageService.dropBackup(line.getLineId());
+            saveBackupTripInputsSignature(line, null);
+            if (restored) {
+                log.info("Restored undisrupted trips for MetroLine {}", line.getLineId());
+                saveTripInputsSignature(line, signature);
+                return true;
+            }
+        }
+        generateTripsForLine(line, lastDeparture);
+        return true;
+    }
+
+    // Trip documents from an older schema, or built under other inputs, are rewritten once at
+    // startup; lines whose signature already matches are skipped, so this is cheap when current
+    @EventListener(ApplicationReadyEvent.class)
+    public void regenerateStaleTrips() {
+        for (MetroLine line : metroLineRepo.findAll()) {
+            try {
+                regenerateTripsIfChanged(line);
+            } catch (RuntimeException e) {
+                log.error("Startup trip regeneration failed for MetroLine {}", line.getLineId(), e);
+            }
+        }
+    }
+
+    // Keeps each line's stored timetable in step with the stations its active suspensions close;
+    // only lines whose closed set actually changed are rewritten
+    @EventListener
+    public void onSuspensionChanged(SuspensionChangedEvent event) {
+        if (event.getMetroLineId() == null) {
+            metroLineRepo.findAll().forEach(this::regenerateTripsIfChanged);
+        } else {
+            metroLineRepo.findById(event.getMetroLineId()).ifPresent(this::regenerateTripsIfChanged);
+        }
+    }
+
+    private void saveBackupTripInputsSignature(MetroLine line, String signature) {
+        line.setBackupTripInputsSignature(signature);
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(line.getLineId())),
+            Update.update("backupTripInputsSignature", signature),
+            MetroLine.class);
+    }
+
+    private void saveTripInputsSignature(MetroLine line, String signature) {
+        line.setTripInputsSignature(signature);
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(line.getLineId())),
+            Update.update("tripInputsSignature", signature),
+            MetroLine.class);
     }
 
     public MetroLine addStationToLine(String lineId, String stationId) {
@@ -165,13 +317,24 @@ public class MetroLineService {
     }
 
     private void populateStations(MetroLine metroLine) {
-        if (metroLine.getStationIds() != null) {
-            List<Station> stations = metroLine.getStationIds().stream()
-                .map(stationRepo::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
-            metroLine.setStations(stations);
+        populateStations(List.of(metroLine));
+    }
+
+    // Hydrate stations for all lines with a single cache lookup / findAllById
+    private void populateStations(List<MetroLine> metroLines) {
+        Set<String> stationIds = metroLines.stream()
+            .filter(line -> line.getStationIds() != null)
+            .flatMap(line -> line.getStationIds().stream())
+            .collect(Collectors.toSet());
+        Map<String, Station> stationsById = stationCache.getAll(stationIds);
+        for (MetroLine metroLine : metroLines) {
+            if (metroLine.getStationIds() != null) {
+                List<Station> stations = metroLine.getStationIds().stream()
+                    .map(stationsById::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+                metroLine.setStations(stations);
+            }
         }
     }
 
@@ -182,8 +345,11 @@ public class MetroLineService {
             line.setSuspensionStartTime(suspension.getStartTime());
             line.setSuspensionEndTime(suspension.getExpectedEndTime());
             metroLineRepo.save(line);
+            eventPublisher.publishEvent(new MetroLineChangedEvent(line.getLineId(), line));
         });
-        return suspensionRepo.save(suspension);
+        Suspension saved = suspensionRepo.save(suspension);
+        eventPublisher.publishEvent(SuspensionChangedEvent.saved(saved));
+        return saved;
     }
 
     public void resolveSuspension(String suspensionId) {
@@ -191,6 +357,7 @@ public class MetroLineService {
             suspension.setActive(false);
             suspension.setUpdatedAt(LocalDateTime.now());
             suspensionRepo.save(suspension);
+            eventPublisher.publishEvent(SuspensionChangedEvent.saved(suspension));
             
             metroLineRepo.findById(suspension.getMetroLineId()).ifPresent(line -> {
                 line.setSuspended(false);
@@ -198,6 +365,7 @@ public class MetroLineService {
                 line.setSuspensionStartTime(null);
                 line.setSuspensionEndTime(null);
                 metroLineRepo.save(line);
+                eventPublisher.publishEvent(new MetroLineChangedEvent(line.getLineId(), line));
             });
         });
     }
@@ -221,91 +389,26 @@ public class MetroLineService {
     }
 
     public List<Trip> generateTripsForLine(MetroLine metroLine, LocalTime lastDeparture) {
-        String collectionName = "trips_" + metroLine.getLineId();
-        mongoTemplate.dropCollection(collectionName);
-
-        List<Trip> trips = new ArrayList<>();
-        List<String> stationIds = metroLine.getStationIds();
-        if (stationIds == null || stationIds.size() < 2) return trips;
-
-        int totalStations = stationIds.size();
-        int segmentDuration = metroLine.getTotalDuration() / (totalStations - 1);
-        int intervalMinutes = 10;
-
-        // FORWARD TRIPS
-        LocalTime currentDeparture = metroLine.getFirstDeparture().toLocalTime();
-        while (!currentDeparture.isAfter(lastDeparture)) {
-            Trip trip = new Trip();
-            trip.setLineId(metroLine.getLineId());
-            trip.setTripId(generateTripId(metroLine.getLineId(), currentDeparture, false));
-            trip.setDepartureTime(currentDeparture);
-            trip.setReturnTrip(false);
-
-            List<Trip.TripSegment> segments = new ArrayList<>();
-            LocalTime currentTime = currentDeparture;
-            for (int i = 0; i < totalStations - 1; i++) {
-                Trip.TripSegment segment = new Trip.TripSegment();
-                segment.setFromStationId(stationIds.get(i));
-                segment.setToStationId(stationIds.get(i + 1));
-                segment.setDepartureTime(currentTime);
-                segment.setArrivalTime(currentTime.plusMinutes(segmentDuration));
-                segment.setDurationMinutes(segmentDuration);
-                segments.add(segment);
-                currentTime = currentTime.plusMinutes(segmentDuration);
-            }
-            trip.setSegments(segments);
-            trip.setArrivalTime(currentTime);
-            trips.add(trip);
-
-            // Next trip starts after previous arrival + interval
-            currentDeparture = currentTime.plusMinutes(intervalMinutes);
-        }
-
-        // RETURN TRIPS (independent sequence)
-        List<String> reversedStationIds = new ArrayList<>(stationIds);
-        java.util.Collections.reverse(reversedStationIds);
-        LocalTime returnDeparture = metroLine.getFirstDeparture().toLocalTime();
-        while (!returnDeparture.isAfter(lastDeparture)) {
-            Trip trip = new Trip();
-            trip.setLineId(metroLine.getLineId());
-            trip.setTripId(generateTripId(metroLine.getLineId(), returnDeparture, true));
-            trip.setDepartureTime(returnDeparture);
-            trip.setReturnTrip(true);
-
-            List<Trip.TripSegment> segments = new ArrayList<>();
-            LocalTime currentTime = returnDeparture;
-            for (int i = 0; i < totalStations - 1; i++) {
-                Trip.TripSegment segment = new Trip.TripSegment();
-                segment.setFromStationId(reversedStationIds.get(i));
-                segment.setToStationId(reversedStationIds.get(i + 1));
-                segment.setDepartureTime(currentTime);
-                segment.setArrivalTime(currentTime.plusMinutes(segmentDuration));
-                segment.setDurationMinutes(segmentDuration);
-                segments.add(segment);
-                currentTime = currentTime.plusMinutes(segmentDuration);
-            }
-            trip.setSegments(segments);
-            trip.setArrivalTime(currentTime);
-            trips.add(trip);
-
-            // Next return trip starts after previous arrival + interval
-            returnDeparture = currentTime.plusMinutes(intervalMinutes);
+        // Stations closed by active suspensions are cut out, leaving short-turn trips
+        Set<String> closedStationIds = suspensionOverlay.getClosedStationIds(metroLine);
+        List<Trip> trips = tripBuilder.buildTrips(metroLine, lastDeparture, closedStationIds);
+        tripStorageService.publishTrips(metroLine.getLineId(), trips);
+        if (tripStorageService.getStorageMode() != TripStorageService.StorageMode.VIRTUAL) {
+            saveTripInputsSignature(metroLine, tripBuilder.buildInputsSignature(metroLine, lastDeparture, closedStationIds));
         }
-
-        mongoTemplate.insert(trips, collectionName);
         return trips;
     }
 
     public List<Trip> generateTripsForLine(MetroLine metroLine) {
         // Default lastDeparture to 22:00 (10 PM)
-        return generateTripsForLine(metroLine, LocalTime.of(22, 0));
+        return generateTripsForLine(metroLine, DEFAULT_LAST_DEPARTURE);
     }
 
     public List<Trip> generateTripsForAllLines() {
         List<Trip> allTrips = new ArrayList<>();
         List<MetroLine> lines = metroLineRepo.findAll();
         for (MetroLine line : lines) {
-            allTrips.addAll(generateTripsForLine(line, LocalTime.of(22, 0)));
+            allTrips.addAll(generateTripsForLine(line, DEFAULT_LAST_DEPARTURE));
         }
         return allTrips;
     }
@@ -320,49 +423,38 @@ public class MetroLineService {
         return allTrips;
     }
 
-    private Trip generateSingleTrip(MetroLine metroLine, LocalTime startTime, boolean isReturnTrip) {
-        Trip trip = new Trip();
-        trip.setLineId(metroLine.getLineId());
-        trip.setTripId(generateTripId(metroLine.getLineId(), startTime, isReturnTrip));
-        trip.setDepartureTime(startTime);
-        trip.setReturnTrip(isReturnTrip);
-        
-        List<String> stationIds;
-        if (isReturnTrip) {
-            stationIds = new ArrayList<>(metroLine.getStationIds());
-            java.util.Collections.reverse(stationIds);
-        } else {
-            stationIds = metroLine.getStationIds();
-        }
-        
-        List<Trip.TripSegment> segments = new ArrayList<>();
-        LocalTime currentTime = startTime;
-        
-        // Calculate time between stations (assuming equal distribution for simplicity)
-        int totalStations = stationIds.size();
-        int segmentDuration = metroLine.getTotalDuration() / (totalStations - 1);
-        
-        for (int i = 0; i < totalStations - 1; i++) {
-            Trip.TripSegment segment = new Trip.TripSegment();
-            segment.setFromStationId(stationIds.get(i));
-            segment.setToStationId(stationIds.get(i + 1));
-            segment.setDepartureTime(currentTime);
-            segment.setArrivalTime(currentTime.plusMinutes(segmentDuration));
-            segment.setDurationMinutes(segmentDuration);
-            segments.add(segment);
-            currentTime = currentTime.plusMinutes(segmentDuration);
+    // Generate trips line by line, either sequentially or on the bounded generation pool.
+    // Only the per-line counts are kept, so the network's trips are never held in memory together.
+    public List<TripGenerationReport> generateTripsForAllLines(LocalTime lastDeparture, boolean parallel) {
+        List<MetroLine> lines = metroLineRepo.findAll();
+        if (!parallel) {
+            return lines.stream()
+                .map(line -> generateTripsWithReport(line, lastDeparture))
+                .toList();
         }
-        
-        trip.setSegments(segments);
-        trip.setArrivalTime(currentTime);
-        return trip;
+        List<CompletableFuture<TripGenerationReport>> futures = lines.stream()
+            .map(line -> CompletableFuture.supplyAsync(
+                () -> generateTripsWithReport(line, lastDeparture), tripGenerationExecutor))
+            .toList();
+        return futures.stream()
+            .map(CompletableFuture::join)
+            .toList();
     }
 
-    private String generateTripId(String lineId, LocalTime time, boolean isReturnTrip) {
-        return String.format("%s-%s-%s", 
-            lineId, 
-            time.toString().replace(":", ""),
-            isReturnTrip ? "R" : "F");
+    private TripGenerationReport generateTripsWithReport(MetroLine line, LocalTime lastDeparture) {
+        TripGenerationReport report = new TripGenerationReport();
+        report.setLineId(line.getLineId());
+        long start = System.nanoTime();
+        try {
+            report.setTripCount(generateTripsForLine(line, lastDeparture).size());
+            report.setSuccess(true);
+        } catch (Exception e) {
+            log.error("Trip generation failed for MetroLine {}", line.getLineId(), e);
+            report.setSuccess(false);
+            report.setError(e.getMessage());
+        }
+        report.setDurationMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
     }
 
     private int parseFrequency(String frequency) {
@@ -375,6 +467,8 @@ public class MetroLineService {
 
     public void deleteMetroLine(String id) {
         metroLineRepo.deleteById(id);
+        eventPublisher.publishEvent(new MetroLineChangedEvent(id, null));
+        tripStorageService.deleteTrips(id);
     }
 
     public MetroLine updateMetroLine(String id, MetroLine updatedLine) {
@@ -425,29 +519,37 @@ public class MetroLineService {
         }
 
         MetroLine saved = metroLineRepo.save(existing);
+        eventPublisher.publishEvent(new MetroLineChangedEvent(saved.getLineId(), saved));
 
-        // If any of the trip-affecting fields changed, regenerate trips
+        // If any of the trip-affecting fields changed, regenerate trips for this line only
         if (freqChanged || stationsChanged || firstDepartureChanged) {
-            generateTripsForLine(saved);
+            regenerateTripsIfChanged(saved);
         }
 
         return saved;
     }
 
     public List<Trip> getTripsForLine(String lineId) {
-        String collectionName = "trips_" + lineId;
-        return mongoTemplate.findAll(Trip.class, collectionName);
+        return withSuspensions(tripStorageService.findTrips(lineId));
+    }
+
+    public LineTimetable getTimetableForLine(String lineId) {
+        return tripStorageService.findTimetable(lineId);
     }
 
     public List<Trip> getTripsForStationInLine(String lineId, String stationId) {
-        String collectionName = "trips_" + lineId;
-        return mongoTemplate.findAll(Trip.class, collectionName).stream()
-            .filter(trip -> trip.getSegments().stream()
-                .anyMatch(segment ->
-                    segment.getFromStationId().equals(stationId) ||
-                    segment.getToStationId().equals(stationId)
-                )
-            )
+        return getTripsForStationInLine(lineId, stationId, new TripFilter());
+    }
+
+    public List<Trip> getTripsForLine(String lineId, TripFilter filter) {
+        return withSuspensions(tripStorageService.findTrips(lineId, filter));
+    }
+
+    // Trips serving the station, trimmed to the segments that touch it
+    public List<Trip> getTripsForStationInLine(String lineId, String stationId, TripFilter filter) {
+        filter.setStationId(stationId);
+        return tripStorageService.findTrips(lineId, filter).stream()
+            .map(suspensionOverlay::apply)
             .map(trip -> {
                 Trip filteredTrip = new Trip();
                 filteredTrip.setTripId(trip.getTripId());
@@ -467,13 +569,50 @@ public class MetroLineService {
             .collect(Collectors.toList());
     }
 
+    // Keyset page of a line's trips, or of the trips serving stationId when it is given
+    public TripPage getTripPage(String lineId, String stationId, TripFilter filter, String cursor) {
+        if (filter.getLimit() <= 0) {
+            throw new RuntimeException("Page limit must be positive");
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.indexOf(':');
+            if (separator < 0) throw new RuntimeException("Invalid trip cursor: " + cursor);
+            try {
+                filter.setAfterDepartureMinute(Integer.parseInt(cursor.substring(0, separator)));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Invalid trip cursor: " + cursor);
+            }
+            filter.setAfterTripId(cursor.substring(separator + 1));
+        }
+        List<Trip> trips = stationId == null
+            ? getTripsForLine(lineId, filter)
+            : getTripsForStationInLine(lineId, stationId, filter);
+        String nextCursor = null;
+        if (trips.size() == filter.getLimit()) {
+            Trip last = trips.get(trips.size() - 1);
+            nextCursor = LineTimetable.timeToMinutes(last.getDepartureTime()) + ":" + last.getTripId();
+        }
+        return new TripPage(trips, nextCursor);
+    }
+
+    // "forward" / "return"; anything blank means both directions
+    public static Boolean parseDirection(String direction) {
+        if (direction == null || direction.isBlank()) return null;
+        if (direction.equalsIgnoreCase("forward")) return false;
+        if (direction.equalsIgnoreCase("return")) return true;
+        throw new RuntimeException("Unknown trip direction: " + direction);
+    }
+
     public void deleteAllTrips() {
         // Drop all trips collections for all lines
         List<MetroLine> lines = metroLineRepo.findAll();
         for (MetroLine line : lines) {
-            String collectionName = "trips_" + line.getLineId();
-            mongoTemplate.dropCollection(collectionName);
+            tripStorageService.deleteTrips(line.getLineId());
         }
+        // Without trips nothing is up to date any more, so the next regeneration must not be skipped
+        mongoTemplate.updateMulti(new Query(),
+            new Update().unset("tripInputsSignature").unset("backupTripInputsSignature"),
+            MetroLine.class);
     }
 
     public int calculateTotalDuration(MetroLine metroLine) {
@@ -487,48 +626,92 @@ public class MetroLineService {
         List<Trip> allTrips = new ArrayList<>();
         List<MetroLine> lines = metroLineRepo.findAll();
         for (MetroLine line : lines) {
-            String collectionName = "trips_" + line.getLineId();
-            allTrips.addAll(mongoTemplate.findAll(Trip.class, collectionName));
+            allTrips.addAll(tripStorageService.findTrips(line));
         }
-        return allTrips;
+        return withSuspensions(allTrips);
     }
 
     // Search for trips from a station to another at an approximate time
     public List<Trip> searchTrips(String fromStationId, String toStationId, String approximateTime) {
-        List<Trip> allTrips = tripRepo.findAll();
-        List<Trip> result = new ArrayList<>();
         java.time.LocalTime approx = null;
         if (approximateTime != null && !approximateTime.isBlank()) {
             try {
                 approx = java.time.LocalTime.parse(approximateTime);
             } catch (Exception ignored) {}
         }
-        for (Trip trip : allTrips) {
-            List<Trip.TripSegment> segments = trip.getSegments();
-            int fromIdx = -1, toIdx = -1;
-            for (int i = 0; i < segments.size(); i++) {
-                if (segments.get(i).getFromStationId().equals(fromStationId)) fromIdx = i;
-                if (segments.get(i).getToStationId().equals(toStationId)) toIdx = i;
-            }
-            if (fromIdx != -1 && toIdx != -1 && fromIdx < toIdx) {
-                if (approx != null) {
-                    Trip.TripSegment fromSeg = segments.get(fromIdx);
-                    java.time.LocalTime dep = fromSeg.getDepartureTime();
-                    if (dep != null && Math.abs(java.time.Duration.between(dep, approx).toMinutes()) > 15) {
-                        continue;
-                    }
-                }
-                result.add(trip);
-            }
-        }
-        return result;
+        return tripSearchIndex.search(fromStationId, toStationId, approx);
+    }
+
+    // Flags the segments that touch a station closed by an active suspension
+    private List<Trip> withSuspensions(List<Trip> trips) {
+        trips.forEach(suspensionOverlay::apply);
+        return trips;
     }
 
     public MetroLineFullDetailsDTO getFullDetailsForLine(String lineId) {
-        MetroLine line = findLineByIdWithStations(lineId);
-        List<Station> stations = getStationsForLine(lineId);
-        List<Suspension> suspensions = suspensionRepo.findByMetroLineId(lineId);
-        List<Trip> trips = getTripsForLine(lineId);
+        MetroLine line = metroLineRepo.findById(lineId)
+            .orElseThrow(() -> new RuntimeException("Metro line not found with id: " + lineId));
+        return loadFullDetails(List.of(line)).get(0);
+    }
+
+    public List<MetroLineFullDetailsDTO> getAllFullDetails() {
+        return loadFullDetails(metroLineRepo.findAll());
+    }
+
+    // Streams every line's full details: everything but the trips is loaded up front, then
+    // each line's trips are read through a cursor and handed over one at a time
+    public void streamAllFullDetails(FullDetailsStreamHandler handler) throws IOException {
+        List<MetroLine> lines = metroLineRepo.findAll();
+        List<MetroLineFullDetailsDTO> details = loadFullDetails(lines, false);
+        for (int i = 0; i < lines.size(); i++) {
+            MetroLine line = lines.get(i);
+            handler.handle(details.get(i), tripAction -> tripStorageService.forEachTrip(
+                line, trip -> tripAction.accept(toTripDTO(suspensionOverlay.apply(trip)))));
+        }
+    }
+
+    public void streamAllTrips(Consumer<Trip> action) {
+        for (MetroLine line : metroLineRepo.findAll()) {
+            tripStorageService.forEachTrip(line, trip -> action.accept(suspensionOverlay.apply(trip)));
+        }
+    }
+
+    @FunctionalInterface
+    public interface FullDetailsStreamHandler {
+        // The DTO arrives without trips; calling trips.accept(action) streams them through action
+        void handle(MetroLineFullDetailsDTO lineDetails,
+                    Consumer<Consumer<MetroLineFullDetailsDTO.TripDTO>> trips) throws IOException;
+    }
+
+    private List<MetroLineFullDetailsDTO> loadFullDetails(List<MetroLine> lines) {
+        return loadFullDetails(lines, true);
+    }
+
+    // Batched loader: stations, suspensions and trips are each fetched once for the whole
+    // set of lines, so the query count does not grow with the number of lines
+    private List<MetroLineFullDetailsDTO> loadFullDetails(List<MetroLine> lines, boolean includeTrips) {
+        if (lines.isEmpty()) return new ArrayList<>();
+        populateStations(lines);
+        List<String> lineIds = lines.stream().map(MetroLine::getLineId).toList();
+        Map<String, List<Suspension>> suspensionsByLine = mongoTemplate.find(
+                Query.query(Criteria.where("metroLineId").in(lineIds)), Suspension.class).stream()
+            .collect(Collectors.groupingBy(Suspension::getMetroLineId));
+        Map<String, List<Trip>> tripsByLine = includeTrips ? tripStorageService.findTrips(lines) : Map.of();
+
+        return lines.stream()
+            .map(line -> toFullDetails(line,
+                suspensionsByLine.getOrDefault(line.getLineId(), List.of()),
+                tripsByLine.getOrDefault(line.getLineId(), List.of())))
+            .toList();
+    }
+
+    private MetroLineFullDetailsDTO toFullDetails(MetroLine line, List<Suspension> suspensions, List<Trip> trips) {
+        List<Station> stations = line.getStations() == null ? new ArrayList<>() : new ArrayList<>(line.getStations());
+        stations.sort((a, b) -> {
+            int numA = Integer.parseInt(a.getStationId().replaceFirst("^ST", ""));
+            int numB = Integer.parseInt(b.getStationId().replaceFirst("^ST", ""));
+            return Integer.compare(numA, numB);
+        });
 
         MetroLineFullDetailsDTO dto = new MetroLineFullDetailsDTO();
         dto.setLineId(line.getLineId());
@@ -572,34 +755,33 @@ public class MetroLineService {
         dto.setSuspensions(suspensionDTOs);
 
         // Map trips
-        List<MetroLineFullDetailsDTO.TripDTO> tripDTOs = trips.stream().map(t -> {
-            MetroLineFullDetailsDTO.TripDTO tdto = new MetroLineFullDetailsDTO.TripDTO();
-            tdto.setTripId(t.getTripId());
-            tdto.setLineId(t.getLineId());
-            tdto.setDepartureTime(t.getDepartureTime());
-            tdto.setArrivalTime(t.getArrivalTime());
-            tdto.setReturnTrip(t.isReturnTrip());
-            tdto.setSegments(t.getSegments().stream().map(seg -> {
-                MetroLineFullDetailsDTO.TripSegmentDTO sgdto = new MetroLineFullDetailsDTO.TripSegmentDTO();
-                sgdto.setFromStationId(seg.getFromStationId());
-                sgdto.setToStationId(seg.getToStationId());
-                sgdto.setDepartureTime(seg.getDepartureTime());
-                sgdto.setArrivalTime(seg.getArrivalTime());
-                sgdto.setDurationMinutes(seg.getDurationMinutes());
-                return sgdto;
-            }).toList());
-            return tdto;
-        }).toList();
+        List<MetroLineFullDetailsDTO.TripDTO> tripDTOs = trips.stream()
+            .map(suspensionOverlay::apply)
+            .map(this::toTripDTO)
+            .toList();
         dto.setTrips(tripDTOs);
 
         return dto;
     }
 
-    public List<MetroLineFullDetailsDTO> getAllFullDetails() {
-        List<MetroLine> lines = metroLineRepo.findAll();
-        return lines.stream()
-            .map(line -> getFullDetailsForLine(line.getLineId()))
-            .toList();
+    private MetroLineFullDetailsDTO.TripDTO toTripDTO(Trip t) {
+        MetroLineFullDetailsDTO.TripDTO tdto = new MetroLineFullDetailsDTO.TripDTO();
+        tdto.setTripId(t.getTripId());
+        tdto.setLineId(t.getLineId());
+        tdto.setDepartureTime(t.getDepartureTime());
+        tdto.setArrivalTime(t.getArrivalTime());
+        tdto.setReturnTrip(t.isReturnTrip());
+        tdto.setSegments(t.getSegments().stream().map(seg -> {
+            MetroLineFullDetailsDTO.TripSegmentDTO sgdto = new MetroLineFullDetailsDTO.TripSegmentDTO();
+            sgdto.setFromStationId(seg.getFromStationId());
+            sgdto.setToStationId(seg.getToStationId());
+            sgdto.setDepartureTime(seg.getDepartureTime());
+            sgdto.setArrivalTime(seg.getArrivalTime());
+            sgdto.setDurationMinutes(seg.getDurationMinutes());
+            sgdto.setSuspended(seg.isSuspended());
+            return sgdto;
+        }).toList());
+        return tdto;
     }
 
     public MetroLine insertStationAtPosition(String lineId, String stationId, int position) {
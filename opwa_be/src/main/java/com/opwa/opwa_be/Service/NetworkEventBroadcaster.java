@@ -0,0 +1,267 @@
+package com.opwa.opwa_be.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opwa.opwa_be.dto.NetworkChangeMessage;
+import com.opwa.opwa_be.event.MetroLineChangedEvent;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Suspension;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pushes line and suspension changes to SSE subscribers. Each change is serialized once into
+// a ready-to-write frame; every subscriber drains its own bounded queue on a shared pool, so the
+// thread that made the change never waits on a client and a slow client only delays itself.
+@Service
+public class NetworkEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(NetworkEventBroadcaster.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NetworkVersionService networkVersionService;
+
+    @Value("${metro.events.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMillis;
+
+    // A subscriber this far behind is disconnected; it reconnects and reloads instead
+    @Value("${metro.events.max-pending-per-subscriber:256}")
+    private int maxPendingPerSubscriber;
+
+    private final ExecutorService dispatchExecutor;
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+
+    // One serialized change plus the ids used for filtering
+    private record Frame(Set<ResponseBodyEmitter.DataWithMediaType> data, String lineId, List<String> stationIds) {
+        boolean isBroadcast() {
+            return lineId == null;
+        }
+    }
+
+    public NetworkEventBroadcaster(@Value("${metro.events.dispatch-threads:4}") int dispatchThreads) {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        this.dispatchExecutor = Executors.newFixedThreadPool(Math.max(1, dispatchThreads), runnable -> {
+            Thread thread = new Thread(runnable, "network-events-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Empty filters mean everything; with both, an event must match the line and the station filter
+    public SseEmitter subscribe(Collection<String> lineIds, Collection<String> stationIds) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        long id = subscriberIds.incrementAndGet();
+        Subscriber subscriber = new Subscriber(emitter,
+            lineIds == null ? Set.of() : Set.copyOf(lineIds),
+            stationIds == null ? Set.of() : Set.copyOf(stationIds));
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> subscribers.remove(id));
+        emitter.onError(error -> subscribers.remove(id));
+        subscribers.put(id, subscriber);
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Stations each line and suspension touched when last seen, so a frame can also reach
+    // subscribers of stations that were just removed. Unknown history means every station.
+    private final Map<String, List<String>> lineStations = new HashMap<>();
+    private final Map<String, Suspension> suspensions = new HashMap<>();
+
+    @EventListener
+    public void onMetroLineChanged(MetroLineChangedEvent event) {
+        NetworkChangeMessage message = new NetworkChangeMessage();
+        MetroLine line = event.getLine();
+        synchronized (lineStations) {
+            if (event.affectsAllLines()) {
+                message.setType(NetworkChangeMessage.Type.LINES_RELOADED);
+                lineStations.clear();
+            } else if (event.isDeleted()) {
+                message.setType(NetworkChangeMessage.Type.LINE_DELETED);
+                message.setStationIds(lineStations.remove(event.getLineId()));
+            } else {
+                message.setType(NetworkChangeMessage.Type.LINE_UPDATED);
+                List<String> stationIds = line.getStationIds() == null ? List.of() : List.copyOf(line.getStationIds());
+                List<String> previous = lineStations.put(event.getLineId(), stationIds);
+                message.setStationIds(previous == null ? null : union(previous, stationIds));
+                message.setData(line);
+            }
+        }
+        message.setLineId(event.getLineId());
+        broadcast(message);
+    }
+
+    @EventListener
+    public void onSuspensionChanged(SuspensionChangedEvent event) {
+        NetworkChangeMessage message = new NetworkChangeMessage();
+        Suspension suspension = event.getSuspension();
+        synchronized (suspensions) {
+            if (event.isBulk()) {
+                message.setType(NetworkChangeMessage.Type.SUSPENSIONS_RELOADED);
+                if (event.getMetroLineId() == null) {
+                    suspensions.clear();
+                } else {
+                    suspensions.values().removeIf(s -> event.getMetroLineId().equals(s.getMetroLineId()));
+                    message.setStationIds(knownLineStations(event.getMetroLineId()));
+                }
+            } else if (event.isDeleted()) {
+                message.setType(NetworkChangeMessage.Type.SUSPENSION_DELETED);
+                message.setStationIds(affectedStations(suspensions.remove(event.getSuspensionId())));
+            } else {
+                message.setType(NetworkChangeMessage.Type.SUSPENSION_UPDATED);
+                List<String> before = affectedStations(suspensions.put(event.getSuspensionId(), suspension));
+                List<String> current = affectedStations(suspension);
+                message.setStationIds(before == null || current == null ? null : union(before, current));
+                message.setData(suspension);
+            }
+        }
+        message.setLineId(event.getMetroLineId());
+        message.setSuspensionId(event.getSuspensionId());
+        broadcast(message);
+    }
+
+    // A suspension without affected stations closes the whole line
+    private List<String> affectedStations(Suspension suspension) {
+        if (suspension == null) return null;
+        List<String> stationIds = suspension.getAffectedStationIds();
+        if (stationIds == null || stationIds.isEmpty()) return knownLineStations(suspension.getMetroLineId());
+        return List.copyOf(stationIds);
+    }
+
+    private List<String> knownLineStations(String lineId) {
+        synchronized (lineStations) {
+            return lineStations.get(lineId);
+        }
+    }
+
+    private static List<String> union(List<String> first, List<String> second) {
+        Set<String> union = new LinkedHashSet<>(first);
+        union.addAll(second);
+        return List.copyOf(union);
+    }
+
+    // Comment frames keep proxies from closing idle streams and surface dead connections
+    @Scheduled(fixedDelayString = "${metro.events.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        if (subscribers.isEmpty()) return;
+        Frame frame = new Frame(SseEmitter.event().comment("keepalive").build(), null, null);
+        subscribers.values().forEach(subscriber -> subscriber.offer(frame));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+        dispatchExecutor.shutdownNow();
+    }
+
+    private void broadcast(NetworkChangeMessage message) {
+        if (subscribers.isEmpty()) return;
+        long version = networkVersionService.getStamp().version();
+        message.setVersion(version);
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize {} change event", message.getType(), e);
+            return;
+        }
+        Frame frame = new Frame(
+            SseEmitter.event()
+                .id(Long.toString(version))
+                .name(message.getType().name())
+                .data(json, MediaType.APPLICATION_JSON)
+                .build(),
+            message.getLineId(),
+            message.getStationIds());
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.accepts(frame)) subscriber.offer(frame);
+        }
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> lineIds;
+        private final Set<String> stationIds;
+        private final Queue<Frame> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+
+        private Subscriber(SseEmitter emitter, Set<String> lineIds, Set<String> stationIds) {
+            this.emitter = emitter;
+            this.lineIds = lineIds;
+            this.stationIds = stationIds;
+        }
+
+        // Frames without station ids may touch any station, so station filters let them through
+        private boolean accepts(Frame frame) {
+            if (frame.isBroadcast()) return true;
+            if (!lineIds.isEmpty() && !lineIds.contains(frame.lineId())) return false;
+            if (!stationIds.isEmpty() && frame.stationIds() != null) {
+                return frame.stationIds().stream().anyMatch(stationIds::contains);
+            }
+            return true;
+        }
+
+        private void offer(Frame frame) {
+            if (pendingCount.incrementAndGet() > maxPendingPerSubscriber) {
+                emitter.complete();
+                return;
+            }
+            pending.add(frame);
+            if (draining.compareAndSet(false, true)) {
+                dispatchExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Frame frame;
+                while ((frame = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    emitter.send(frame.data());
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the emitter callbacks drop the subscription
+                emitter.completeWithError(e);
+                pending.clear();
+            } finally {
+                draining.set(false);
+                if (!pending.isEmpty() && draining.compareAndSet(false, true)) {
+                    dispatchExecutor.execute(this::drain);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.opwa.opwa_be.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.event.MetroLineChangedEvent;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
+import com.opwa.opwa_be.event.TripsRegeneratedEvent;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Pre-serialized JSON (plain and gzip) of the public network read endpoints. Each payload is
+// rebuilt on its own in the background after a network change; readers keep getting the previous
+// payload (with its matching ETag) until the rebuild completes, and only the very first read blocks.
+@Service
+public class NetworkSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(NetworkSnapshotService.class);
+
+    @Autowired
+    private MetroLineService metroLineService;
+
+    @Autowired
+    private StationRepo stationRepo;
+
+    @Autowired
+    private NetworkVersionService networkVersionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public enum Kind { METRO_LINES, FULL_DETAILS, STATIONS }
+
+    public record Payload(long version, byte[] json, byte[] gzip, boolean empty, String eTag, long lastModifiedMillis) {}
+
+    private static final class Slot {
+        private final Kind kind;
+        private final AtomicBoolean rebuildQueued = new AtomicBoolean(false);
+        private volatile Payload payload;
+
+        private Slot(Kind kind) {
+            this.kind = kind;
+        }
+    }
+
+    private final Map<Kind, Slot> slots = new EnumMap<>(Kind.class);
+
+    {
+        for (Kind kind : Kind.values()) {
+            slots.put(kind, new Slot(kind));
+        }
+    }
+
+    private final ExecutorService rebuildExecutor = Executors.newFixedThreadPool(Kind.values().length, runnable -> {
+        Thread thread = new Thread(runnable, "network-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Runs after every other listener so caches and indexes already reflect the write
+    @EventListener({
+        MetroLineChangedEvent.class,
+        StationChangedEvent.class,
+        SuspensionChangedEvent.class,
+        TripsRegeneratedEvent.class
+    })
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onNetworkChanged() {
+        for (Slot slot : slots.values()) {
+            scheduleRebuild(slot);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public Payload getPayload(Kind kind) {
+        Slot slot = slots.get(kind);
+        Payload current = slot.payload;
+        if (current == null) {
+            return rebuild(slot);
+        }
+        if (current.version() != networkVersionService.getStamp().version()) {
+            scheduleRebuild(slot);
+        }
+        return current;
+    }
+
+    private void scheduleRebuild(Slot slot) {
+        if (slot.rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.submit(() -> {
+                slot.rebuildQueued.set(false);
+                try {
+                    rebuild(slot);
+                } catch (RuntimeException e) {
+                    log.error("Network snapshot rebuild of {} failed", slot.kind, e);
+                }
+            });
+        }
+    }
+
+    private Payload rebuild(Slot slot) {
+        synchronized (slot) {
+            // The stamp is read before any data so a concurrent write can only leave the payload stale
+            NetworkVersionService.VersionStamp stamp = networkVersionService.getStamp();
+            Payload current = slot.payload;
+            if (current != null && current.version() == stamp.version()) {
+                return current;
+            }
+            long start = System.currentTimeMillis();
+            Collection<?> value = switch (slot.kind) {
+                case METRO_LINES -> metroLineService.findAllWithStations();
+                case FULL_DETAILS -> metroLineService.getAllFullDetails();
+                case STATIONS -> stationRepo.findAll();
+            };
+            Payload rebuilt = serialize(value, networkVersionService.eTagOf(stamp), stamp);
+            slot.payload = rebuilt;
+            log.info("Rebuilt network snapshot {} v{} in {} ms", slot.kind, stamp.version(), System.currentTimeMillis() - start);
+            return rebuilt;
+        }
+    }
+
+    private Payload serialize(Collection<?> value, String eTag, NetworkVersionService.VersionStamp stamp) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new Payload(stamp.version(), json, gzip(json), value.isEmpty(), eTag, stamp.lastModifiedMillis());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        // Compressed once per rebuild and served many times, so spend the CPU on the best ratio
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // True when the Accept-Encoding header admits gzip (q > 0)
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            if (!coding.equals("gzip") && !coding.equals("*")) continue;
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (q > 0) return true;
+        }
+        return false;
+    }
+
+    // 304 when the client copy is current; otherwise the stored bytes, gzip when the client accepts it.
+    // The gzip body is a different representation, so it gets its own strong ETag.
+    public ResponseEntity<byte[]> toResponse(Payload payload, WebRequest webRequest, boolean noContentWhenEmpty) {
+        boolean gzip = acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = gzip ? gzipETag(payload.eTag()) : payload.eTag();
+        if (webRequest.checkNotModified(eTag, payload.lastModifiedMillis())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        if (noContentWhenEmpty && payload.empty()) {
+            return ResponseEntity.noContent().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        return response.body(payload.json());
+    }
+
+    static String gzipETag(String eTag) {
+        return eTag.endsWith("\"") ? eTag.substring(0, eTag.length() - 1) + "-gzip\"" : eTag + "-gzip";
+    }
+}
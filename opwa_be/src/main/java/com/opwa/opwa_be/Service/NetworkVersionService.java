@@ -0,0 +1,59 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.event.MetroLineChangedEvent;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
+import com.opwa.opwa_be.event.TripsRegeneratedEvent;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Version counter for everything the public read endpoints serve, bumped by every line, station,
+// suspension and trip write event. The ETag carries a per-process epoch so tags from another
+// run or another instance never match by accident; they only cost a full response.
+@Service
+public class NetworkVersionService {
+
+    public record VersionStamp(long version, long lastModifiedMillis) {}
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicReference<VersionStamp> current =
+        new AtomicReference<>(new VersionStamp(1, System.currentTimeMillis()));
+
+    @EventListener({
+        MetroLineChangedEvent.class,
+        StationChangedEvent.class,
+        SuspensionChangedEvent.class,
+        TripsRegeneratedEvent.class
+    })
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onNetworkChanged() {
+        long now = System.currentTimeMillis();
+        current.updateAndGet(stamp -> new VersionStamp(stamp.version() + 1, Math.max(now, stamp.lastModifiedMillis())));
+    }
+
+    public VersionStamp getStamp() {
+        return current.get();
+    }
+
+    public String getETag() {
+        return eTagOf(current.get());
+    }
+
+    // Call before loading anything: answers 304 (returns true) when the client's copy is current,
+    // otherwise sets ETag and Last-Modified for the response that follows. Taking the stamp first
+    // means a write racing with the read can only make the tag older than the body, never newer.
+    public boolean checkNotModified(WebRequest request) {
+        VersionStamp stamp = current.get();
+        return request.checkNotModified(eTagOf(stamp), stamp.lastModifiedMillis());
+    }
+
+    public String eTagOf(VersionStamp stamp) {
+        return "\"" + epoch + "-" + stamp.version() + "\"";
+    }
+}
@@ -0,0 +1,122 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.model.DatabaseSequence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Hi/lo id allocation backed by database_sequences. Each instance reserves a block of
+// values with one atomic findAndModify and hands them out locally until the block runs out.
+// Sequences only ever move forward, since other instances may still hold blocks below the current value.
+@Service
+public class SequenceGeneratorService {
+
+    public static final String STATION_SEQUENCE = "stations";
+    public static final String METRO_LINE_SEQUENCE = "metro_lines";
+    public static final String SUSPENSION_SEQUENCE = "suspensions";
+
+    private static final Pattern TRAILING_NUMBER = Pattern.compile("(\\d+)$");
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${metro.sequence.block-size:20}")
+    private int blockSize;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    private final Set<String> seededSequences = ConcurrentHashMap.newKeySet();
+
+    private static final class Block {
+        private long next;
+        private final long last;
+
+        Block(long next, long last) {
+            this.next = next;
+            this.last = last;
+        }
+    }
+
+    // The seed is only evaluated the first time a sequence is used against an empty database_sequences entry
+    public synchronized long next(String sequenceName, LongSupplier seed) {
+        Block block = blocks.get(sequenceName);
+        if (block == null || block.next > block.last) {
+            block = allocateBlock(sequenceName, seed);
+            blocks.put(sequenceName, block);
+        }
+        return block.next++;
+    }
+
+    // Moves the sequence past an id that was assigned explicitly; never moves it backwards.
+    // The local block is dropped if it could still hand that number out.
+    public synchronized void advanceTo(String sequenceName, long value, LongSupplier seed) {
+        ensureSeeded(sequenceName, seed);
+        mongoTemplate.upsert(byId(sequenceName), new Update().max("seq", value), DatabaseSequence.class);
+        Block block = blocks.get(sequenceName);
+        if (block != null && block.next <= value) {
+            blocks.remove(sequenceName);
+        }
+    }
+
+    public static long maxTrailingNumber(Stream<String> ids) {
+        return maxNumber(ids, TRAILING_NUMBER);
+    }
+
+    // Largest value of the pattern's first group over the ids that match it. Ids whose number
+    // does not fit in a long are skipped rather than failing the seed.
+    public static long maxNumber(Stream<String> ids, Pattern idPattern) {
+        long max = 0;
+        for (String id : (Iterable<String>) ids::iterator) {
+            if (id == null) continue;
+            Matcher matcher = idPattern.matcher(id);
+            if (!matcher.find()) continue;
+            try {
+                max = Math.max(max, Long.parseLong(matcher.group(1)));
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+        return max;
+    }
+
+    private Block allocateBlock(String sequenceName, LongSupplier seed) {
+        ensureSeeded(sequenceName, seed);
+        int size = Math.max(1, blockSize);
+        DatabaseSequence sequence = mongoTemplate.findAndModify(
+            byId(sequenceName),
+            new Update().inc("seq", size),
+            FindAndModifyOptions.options().returnNew(true).upsert(true),
+            DatabaseSequence.class);
+        return new Block(sequence.getSeq() - size + 1, sequence.getSeq());
+    }
+
+    private void ensureSeeded(String sequenceName, LongSupplier seed) {
+        if (seededSequences.contains(sequenceName)) return;
+        if (!mongoTemplate.exists(byId(sequenceName), DatabaseSequence.class)) {
+            try {
+                mongoTemplate.insert(new DatabaseSequence(sequenceName, seed.getAsLong()));
+            } catch (DuplicateKeyException e) {
+                // Another instance seeded it first
+            }
+        }
+        seededSequences.add(sequenceName);
+    }
+
+    private static Query byId(String sequenceName) {
+        return Query.query(Criteria.where("_id").is(sequenceName));
+    }
+}
@@ -0,0 +1,77 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.model.Station;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process station cache. Misses are loaded with a single findAllById per call,
+// and StationService writes are applied through StationChangedEvent.
+@Service
+public class StationCache {
+
+    @Autowired
+    private StationRepo stationRepo;
+
+    private final Map<String, Station> stations = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    // Writes and loaded-miss inserts share the monitor; plain reads never take it
+    @EventListener
+    public synchronized void onStationChanged(StationChangedEvent event) {
+        generation.incrementAndGet();
+        if (event.affectsAllStations()) {
+            stations.clear();
+        } else if (event.isDeleted()) {
+            stations.remove(event.getStationId());
+        } else {
+            stations.put(event.getStationId(), event.getStation());
+        }
+    }
+
+    public Optional<Station> get(String stationId) {
+        return Optional.ofNullable(getAll(List.of(stationId)).get(stationId));
+    }
+
+    public Map<String, Station> getAll(Collection<String> stationIds) {
+        Map<String, Station> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String stationId : stationIds) {
+            Station station = stations.get(stationId);
+            if (station != null) {
+                result.put(stationId, station);
+            } else if (stationId != null) {
+                missing.add(stationId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long loadGeneration = generation.get();
+            List<Station> loaded = new ArrayList<>();
+            stationRepo.findAllById(missing).forEach(loaded::add);
+            for (Station station : loaded) {
+                result.put(station.getStationId(), station);
+            }
+            // A station write during the load may have made these copies stale: return them, don't cache them
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    for (Station station : loaded) {
+                        stations.putIfAbsent(station.getStationId(), station);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.MetroLineRepo;
+import com.opwa.opwa_be.event.MetroLineChangedEvent;
+import com.opwa.opwa_be.model.MetroLine;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Reverse index from station id to the ids of the lines that stop there. Built with one
+// metro_lines scan and then kept current by the MetroLineChangedEvents MetroLineService publishes.
+@Service
+public class StationLineIndex {
+
+    @Autowired
+    private MetroLineRepo metroLineRepo;
+
+    private final Map<String, Set<String>> linesByStation = new HashMap<>();
+    private final Map<String, List<String>> stationsByLine = new HashMap<>();
+    private boolean loaded;
+
+    @EventListener
+    public synchronized void onMetroLineChanged(MetroLineChangedEvent event) {
+        if (event.affectsAllLines()) {
+            linesByStation.clear();
+            stationsByLine.clear();
+            loaded = false;
+            return;
+        }
+        if (!loaded) return;
+        remove(event.getLineId());
+        if (!event.isDeleted()) add(event.getLine());
+    }
+
+    public synchronized List<String> getLineIds(String stationId) {
+        ensureLoaded();
+        return List.copyOf(linesByStation.getOrDefault(stationId, Set.of()));
+    }
+
+    // Membership for each requested station, in request order; unknown stations map to an empty list
+    public synchronized Map<String, List<String>> getLineIds(Collection<String> stationIds) {
+        ensureLoaded();
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (String stationId : stationIds) {
+            result.put(stationId, List.copyOf(linesByStation.getOrDefault(stationId, Set.of())));
+        }
+        return result;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        for (MetroLine line : metroLineRepo.findAll()) {
+            add(line);
+        }
+        loaded = true;
+    }
+
+    private void add(MetroLine line) {
+        List<String> stationIds = line.getStationIds() == null ? List.of() : List.copyOf(line.getStationIds());
+        stationsByLine.put(line.getLineId(), stationIds);
+        for (String stationId : stationIds) {
+            linesByStation.computeIfAbsent(stationId, id -> new TreeSet<>()).add(line.getLineId());
+        }
+    }
+
+    private void remove(String lineId) {
+        List<String> stationIds = stationsByLine.remove(lineId);
+        if (stationIds == null) return;
+        for (String stationId : stationIds) {
+            Set<String> lineIds = linesByStation.get(stationId);
+            if (lineIds == null) continue;
+            lineIds.remove(lineId);
+            if (lineIds.isEmpty()) linesByStation.remove(stationId);
+        }
+    }
+}
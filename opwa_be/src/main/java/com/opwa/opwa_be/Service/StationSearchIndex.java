@@ -0,0 +1,218 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.model.Station;
+
+import org.apache.commons.text.similarity.LevenshteinDistance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Accent-insensitive autocomplete over station names. Word prefixes live in a sorted map so
+// "thao die" finds "Thao Dien" written with diacritics; a trigram index supplies infix and typo-tolerant candidates.
+// StationService writes are applied one station at a time through StationChangedEvent.
+@Service
+public class StationSearchIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final double MIN_TRIGRAM_SIMILARITY = 0.5;
+    private static final int MAX_EDIT_DISTANCE = 2;
+
+    // Lower tiers rank first
+    private static final int TIER_EXACT = 0;
+    private static final int TIER_NAME_PREFIX = 1;
+    private static final int TIER_WORD_PREFIX = 2;
+    private static final int TIER_CONTAINS = 3;
+    private static final int TIER_EDIT_DISTANCE = 4;
+    private static final int TIER_TRIGRAM = 5;
+
+    @Autowired
+    private StationRepo stationRepo;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final NavigableMap<String, Set<String>> words = new TreeMap<>();
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    private volatile boolean loaded;
+
+    private record Entry(Station station, String folded, List<String> words, Set<String> trigrams) {}
+
+    private record Match(Entry entry, int tier, double similarity) {}
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.affectsAllStations()) {
+                clear();
+                loaded = false;
+                return;
+            }
+            if (!loaded) return;
+            remove(event.getStationId());
+            if (!event.isDeleted()) add(event.getStation());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Station> search(String query, int limit) {
+        String folded = fold(query);
+        if (folded.isEmpty() || limit <= 0) return List.of();
+        ensureLoaded();
+
+        lock.readLock().lock();
+        try {
+            Set<String> candidateIds = new LinkedHashSet<>(wordPrefixCandidates(folded));
+            Set<String> queryTrigrams = trigramsOf(folded);
+            Map<String, Integer> sharedTrigrams = new HashMap<>();
+            for (String trigram : queryTrigrams) {
+                for (String stationId : trigrams.getOrDefault(trigram, Set.of())) {
+                    sharedTrigrams.merge(stationId, 1, Integer::sum);
+                }
+            }
+            candidateIds.addAll(sharedTrigrams.keySet());
+
+            LevenshteinDistance levenshtein = new LevenshteinDistance(MAX_EDIT_DISTANCE);
+            List<Match> matches = new ArrayList<>();
+            for (String stationId : candidateIds) {
+                Entry entry = entries.get(stationId);
+                int shared = sharedTrigrams.getOrDefault(stationId, 0);
+                double similarity = queryTrigrams.isEmpty() ? 0
+                    : 2.0 * shared / (queryTrigrams.size() + entry.trigrams().size());
+                int tier = tierOf(entry, folded, similarity, levenshtein);
+                if (tier >= 0) matches.add(new Match(entry, tier, similarity));
+            }
+            matches.sort(Comparator.comparingInt(Match::tier)
+                .thenComparing(Comparator.comparingDouble(Match::similarity).reversed())
+                .thenComparingInt(m -> m.entry().folded().length())
+                .thenComparing(m -> m.entry().folded()));
+            return matches.stream().limit(limit).map(m -> m.entry().station()).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String fold(String text) {
+        if (text == null) return "";
+        // The Vietnamese d-with-stroke has no decomposition, so it is mapped before stripping the combining marks
+        String decomposed = Normalizer.normalize(text.replace('\u0111', 'd').replace('\u0110', 'D'), Normalizer.Form.NFD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        return NON_ALPHANUMERIC.matcher(stripped).replaceAll(" ").trim();
+    }
+
+    private int tierOf(Entry entry, String query, double similarity, LevenshteinDistance levenshtein) {
+        String name = entry.folded();
+        if (name.equals(query)) return TIER_EXACT;
+        if (name.startsWith(query)) return TIER_NAME_PREFIX;
+        if (allTokensPrefixWords(entry.words(), query.split(" "))) return TIER_WORD_PREFIX;
+        if (name.contains(query)) return TIER_CONTAINS;
+        if (levenshtein.apply(name, query) >= 0) return TIER_EDIT_DISTANCE;
+        if (similarity >= MIN_TRIGRAM_SIMILARITY) return TIER_TRIGRAM;
+        return -1;
+    }
+
+    private static boolean allTokensPrefixWords(List<String> words, String[] tokens) {
+        for (String token : tokens) {
+            if (words.stream().noneMatch(word -> word.startsWith(token))) return false;
+        }
+        return true;
+    }
+
+    // Stations where every query token is the prefix of some word in the name
+    private Set<String> wordPrefixCandidates(String query) {
+        Set<String> result = null;
+        for (String token : query.split(" ")) {
+            Set<String> matching = new HashSet<>();
+            for (Set<String> ids : words.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                matching.addAll(ids);
+            }
+            if (result == null) {
+                result = matching;
+            } else {
+                result.retainAll(matching);
+            }
+            if (result.isEmpty()) break;
+        }
+        return result == null ? Set.of() : result;
+    }
+
+    private static Set<String> trigramsOf(String folded) {
+        Set<String> result = new HashSet<>();
+        String padded = " " + folded + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        lock.writeLock().lock();
+        try {
+            if (loaded) return;
+            clear();
+            for (Station station : stationRepo.findAll()) {
+                add(station);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Station station) {
+        String folded = fold(station.getStationName());
+        List<String> nameWords = folded.isEmpty() ? List.of() : List.of(folded.split(" "));
+        Entry entry = new Entry(station, folded, nameWords, trigramsOf(folded));
+        entries.put(station.getStationId(), entry);
+        for (String word : entry.words()) {
+            words.computeIfAbsent(word, w -> new HashSet<>()).add(station.getStationId());
+        }
+        for (String trigram : entry.trigrams()) {
+            trigrams.computeIfAbsent(trigram, t -> new HashSet<>()).add(station.getStationId());
+        }
+    }
+
+    private void remove(String stationId) {
+        Entry entry = entries.remove(stationId);
+        if (entry == null) return;
+        for (String word : entry.words()) {
+            removePosting(words, word, stationId);
+        }
+        for (String trigram : entry.trigrams()) {
+            removePosting(trigrams, trigram, stationId);
+        }
+    }
+
+    private static void removePosting(Map<String, Set<String>> postings, String key, String stationId) {
+        Set<String> ids = postings.get(key);
+        if (ids == null) return;
+        ids.remove(stationId);
+        if (ids.isEmpty()) postings.remove(key);
+    }
+
+    private void clear() {
+        entries.clear();
+        words.clear();
+        trigrams.clear();
+    }
+}
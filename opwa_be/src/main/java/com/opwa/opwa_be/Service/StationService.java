@@ -2,9 +2,12 @@ package com.opwa.opwa_be.Service;
 
 import com.opwa.opwa_be.Repository.MetroLineRepo;
 import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.event.StationChangedEvent;
 import com.opwa.opwa_be.model.MetroLine;
 import com.opwa.opwa_be.model.Station;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -23,6 +26,15 @@ public class StationService {
     @Autowired
     private MetroLineService metroLineService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SequenceGeneratorService sequenceGeneratorService;
+
+    @Autowired
+    private StationLineIndex stationLineIndex;
+
     public Station updateStation(String id, Station updatedStation) {
         Station existing = stationRepo.findById(id)
                 .orElseThrow(() -> new RuntimeException("Station not found with id: " + id));
@@ -51,12 +63,14 @@ public class StationService {
             existing.setUpdatedAt(LocalDateTime.now());
         }
 
-        return stationRepo.save(existing);
+        Station saved = stationRepo.save(existing);
+        eventPublisher.publishEvent(new StationChangedEvent(saved.getStationId(), saved));
+        return saved;
     }
 
     public void deleteStation(String id) {
         // Find all metro lines containing this station
-        List<MetroLine> affectedLines = metroLineRepo.findByStationIdsContaining(id);
+        List<MetroLine> affectedLines = metroLineRepo.findAllById(stationLineIndex.getLineIds(id));
 
         // Remove station from all metro lines
         affectedLines.forEach(line -> {
@@ -67,18 +81,26 @@ public class StationService {
 
         // Now delete the station
         stationRepo.deleteById(id);
+        eventPublisher.publishEvent(new StationChangedEvent(id, null));
     }
 
     public Station createStation(Station station) {
-        int maxNumber = stationRepo.findAll().stream()
-                .map(s -> s.getStationId().substring(2)) // Remove "ST" prefix
-                .mapToInt(Integer::parseInt)
-                .max()
-                .orElse(0); // Default to 0 if no stations exist
-
-        station.setStationId(String.format("ST%d", maxNumber + 1));
         station.setCreatedAt(LocalDateTime.now());
         station.setUpdatedAt(LocalDateTime.now());
-        return stationRepo.save(station);
+        Station saved;
+        while (true) {
+            long number = sequenceGeneratorService.next(SequenceGeneratorService.STATION_SEQUENCE,
+                    () -> SequenceGeneratorService.maxTrailingNumber(stationRepo.findAll().stream().map(Station::getStationId)));
+            station.setStationId(String.format("ST%d", number));
+            try {
+                // Insert rather than save, so an id that is already taken is never overwritten
+                saved = stationRepo.insert(station);
+                break;
+            } catch (DuplicateKeyException e) {
+                // Taken by an explicitly assigned id; move on to the next number
+            }
+        }
+        eventPublisher.publishEvent(new StationChangedEvent(saved.getStationId(), saved));
+        return saved;
     }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.dto.NearbyStation;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.model.Station;
+import com.opwa.opwa_be.planner.TransitNetwork;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.geo.GeoJsonPolygon;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Nearest-station and viewport lookups. MEMORY keeps a uniform lat/lng grid that is rebuilt
+// after station writes; MONGO maintains a GeoJSON "location" field with a 2dsphere index instead.
+@Service
+public class StationSpatialIndex {
+
+    public enum SpatialMode { MEMORY, MONGO }
+
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+    private static final String LOCATION_FIELD = "location";
+
+    @Autowired
+    private StationRepo stationRepo;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${metro.stations.spatial.mode:MEMORY}")
+    private SpatialMode mode;
+
+    @Value("${metro.stations.spatial.cell-size-degrees:0.01}")
+    private double cellSizeDegrees;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Grid grid;
+    private volatile boolean mongoIndexReady;
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        generation.incrementAndGet();
+        grid = null;
+        if (mode != SpatialMode.MONGO || !mongoIndexReady || event.isDeleted()) return;
+        // Repository saves replace the whole document, so the derived location has to be rewritten
+        Query query = event.affectsAllStations()
+            ? new Query()
+            : Query.query(Criteria.where("_id").is(event.getStationId()));
+        syncLocations(query);
+    }
+
+    public List<NearbyStation> findNearest(double latitude, double longitude, int k) {
+        if (k <= 0) return List.of();
+        if (mode == SpatialMode.MONGO) return findNearestInMongo(latitude, longitude, k);
+        return getGrid().nearest(latitude, longitude, k);
+    }
+
+    public List<Station> findWithin(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        if (minLatitude > maxLatitude || minLongitude > maxLongitude) {
+            throw new RuntimeException("Bounding box minimum must not exceed its maximum");
+        }
+        if (mode == SpatialMode.MONGO) return findWithinInMongo(minLatitude, minLongitude, maxLatitude, maxLongitude);
+        return getGrid().within(minLatitude, minLongitude, maxLatitude, maxLongitude);
+    }
+
+    public SpatialMode getMode() {
+        return mode;
+    }
+
+    private Grid getGrid() {
+        Grid current = grid;
+        if (current != null) return current;
+        synchronized (this) {
+            if (grid != null) return grid;
+            // A station write during the load leaves the built grid to this caller only
+            long buildGeneration = generation.get();
+            Grid built = Grid.build(stationRepo.findAll(), cellSizeDegrees);
+            if (generation.get() == buildGeneration) {
+                grid = built;
+            }
+            return built;
+        }
+    }
+
+    private List<NearbyStation> findNearestInMongo(double latitude, double longitude, int k) {
+        ensureMongoIndex();
+        NearQuery nearQuery = NearQuery.near(new GeoJsonPoint(longitude, latitude)).spherical(true).limit(k);
+        List<NearbyStation> result = new ArrayList<>();
+        for (GeoResult<Station> geoResult : mongoTemplate.geoNear(nearQuery, Station.class)) {
+            Station station = geoResult.getContent();
+            result.add(new NearbyStation(station,
+                TransitNetwork.distanceMeters(latitude, longitude, station.getLatitude(), station.getLongitude())));
+        }
+        return result;
+    }
+
+    private List<Station> findWithinInMongo(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        ensureMongoIndex();
+        GeoJsonPolygon box = new GeoJsonPolygon(
+            new GeoJsonPoint(minLongitude, minLatitude),
+            new GeoJsonPoint(maxLongitude, minLatitude),
+            new GeoJsonPoint(maxLongitude, maxLatitude),
+            new GeoJsonPoint(minLongitude, maxLatitude),
+            new GeoJsonPoint(minLongitude, minLatitude));
+        return mongoTemplate.find(Query.query(Criteria.where(LOCATION_FIELD).within(box)), Station.class);
+    }
+
+    private synchronized void ensureMongoIndex() {
+        if (mongoIndexReady) return;
+        syncLocations(new Query());
+        mongoTemplate.indexOps(Station.class)
+            .ensureIndex(new GeospatialIndex(LOCATION_FIELD).typed(GeoSpatialIndexType.GEO_2DSPHERE));
+        mongoIndexReady = true;
+    }
+
+    // One pipeline update derives the GeoJSON point from the stored latitude/longitude
+    private void syncLocations(Query query) {
+        AggregationUpdate update = AggregationUpdate.update()
+            .set(LOCATION_FIELD)
+            .toValue(new Document("type", "Point").append("coordinates", List.of("$longitude", "$latitude")));
+        mongoTemplate.updateMulti(query, update, Station.class);
+    }
+
+    // Stations bucketed into fixed-size cells over the bounding box of the data. Cell contents
+    // are stored contiguously in one array, indexed by cellStart like a CSR matrix.
+    static final class Grid {
+        private final Station[] stations;
+        private final int[] cellStart;
+        private final int[] cellStations;
+        private final double minLat;
+        private final double minLng;
+        private final double cellSize;
+        private final int rows;
+        private final int cols;
+        private final double maxAbsLat;
+
+        private Grid(Station[] stations, int[] cellStart, int[] cellStations, double minLat, double minLng,
+                     double cellSize, int rows, int cols, double maxAbsLat) {
+            this.stations = stations;
+            this.cellStart = cellStart;
+            this.cellStations = cellStations;
+            this.minLat = minLat;
+            this.minLng = minLng;
+            this.cellSize = cellSize;
+            this.rows = rows;
+            this.cols = cols;
+            this.maxAbsLat = maxAbsLat;
+        }
+
+        static Grid build(List<Station> stationList, double requestedCellSize) {
+            Station[] stations = stationList.toArray(new Station[0]);
+            int n = stations.length;
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+            double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+            for (Station station : stations) {
+                minLat = Math.min(minLat, station.getLatitude());
+                maxLat = Math.max(maxLat, station.getLatitude());
+                minLng = Math.min(minLng, station.getLongitude());
+                maxLng = Math.max(maxLng, station.getLongitude());
+            }
+            if (n == 0) {
+                minLat = maxLat = minLng = maxLng = 0;
+            }
+
+            // Widen cells when the data is sparse so the cell array stays proportional to the station count
+            double cellSize = requestedCellSize > 0 ? requestedCellSize : 0.01;
+            long maxCells = Math.max(1024L, 4L * n);
+            int rows, cols;
+            while (true) {
+                rows = (int) Math.floor((maxLat - minLat) / cellSize) + 1;
+                cols = (int) Math.floor((maxLng - minLng) / cellSize) + 1;
+                if ((long) rows * cols <= maxCells) break;
+                cellSize *= 2;
+            }
+
+            int[] cellOf = new int[n];
+            int[] cellStart = new int[rows * cols + 1];
+            for (int i = 0; i < n; i++) {
+                int row = (int) ((stations[i].getLatitude() - minLat) / cellSize);
+                int col = (int) ((stations[i].getLongitude() - minLng) / cellSize);
+                cellOf[i] = row * cols + col;
+                cellStart[cellOf[i] + 1]++;
+            }
+            for (int c = 0; c < rows * cols; c++) cellStart[c + 1] += cellStart[c];
+            int[] fill = cellStart.clone();
+            int[] cellStations = new int[n];
+            for (int i = 0; i < n; i++) cellStations[fill[cellOf[i]]++] = i;
+
+            double maxAbsLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+            return new Grid(stations, cellStart, cellStations, minLat, minLng, cellSize, rows, cols, maxAbsLat);
+        }
+
+        List<NearbyStation> nearest(double latitude, double longitude, int k) {
+            if (stations.length == 0) return List.of();
+            k = Math.min(k, stations.length);
+            // A query outside the grid starts from the nearest grid cell; every station is then at
+            // least the distance to the grid away, on top of the rings crossed inside it
+            double gridLat = Math.max(minLat, Math.min(minLat + rows * cellSize, latitude));
+            double gridLng = Math.max(minLng, Math.min(minLng + cols * cellSize, longitude));
+            double metersToGrid = TransitNetwork.distanceMeters(latitude, longitude, gridLat, gridLng);
+            int queryRow = Math.max(0, Math.min(rows - 1, (int) Math.floor((latitude - minLat) / cellSize)));
+            int queryCol = Math.max(0, Math.min(cols - 1, (int) Math.floor((longitude - minLng) / cellSize)));
+            int maxRing = Math.max(
+                Math.max(queryRow, rows - 1 - queryRow),
+                Math.max(queryCol, cols - 1 - queryCol));
+            // A cell is never narrower than its east-west extent at the highest latitude searched
+            double maxSearchedLat = Math.min(89.0, Math.max(maxAbsLat, Math.abs(latitude)));
+            double metersPerCell = cellSize * METERS_PER_DEGREE_LAT * Math.cos(Math.toRadians(maxSearchedLat));
+
+            // Max-heap of the best k so far, expanded one ring of cells at a time
+            PriorityQueue<NearbyStation> best = new PriorityQueue<>(
+                Comparator.comparingDouble(NearbyStation::getDistanceMeters).reversed());
+            if (metersToGrid > Math.max(rows, cols) * metersPerCell) {
+                // Far outside the grid the flat ring bounds no longer hold on the sphere; every
+                // ring would be visited anyway, so compare all stations directly
+                for (Station station : stations) {
+                    offer(best, k, station, latitude, longitude);
+                }
+                return sorted(best);
+            }
+            for (int ring = 0; ring <= maxRing; ring++) {
+                if (best.size() == k
+                    && best.peek().getDistanceMeters() <= Math.hypot(metersToGrid, (ring - 1) * metersPerCell)) break;
+                for (int row = queryRow - ring; row <= queryRow + ring; row++) {
+                    if (row < 0 || row >= rows) continue;
+                    boolean edgeRow = row == queryRow - ring || row == queryRow + ring;
+                    int step = edgeRow ? 1 : Math.max(1, 2 * ring);
+                    for (int col = queryCol - ring; col <= queryCol + ring; col += step) {
+                        if (col < 0 || col >= cols) continue;
+                        int cell = row * cols + col;
+                        for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                            offer(best, k, stations[cellStations[p]], latitude, longitude);
+                        }
+                    }
+                }
+            }
+            return sorted(best);
+        }
+
+        private static void offer(PriorityQueue<NearbyStation> best, int k, Station station,
+                                  double latitude, double longitude) {
+            double meters = TransitNetwork.distanceMeters(latitude, longitude,
+                station.getLatitude(), station.getLongitude());
+            if (best.size() < k) {
+                best.add(new NearbyStation(station, meters));
+            } else if (meters < best.peek().getDistanceMeters()) {
+                best.poll();
+                best.add(new NearbyStation(station, meters));
+            }
+        }
+
+        private static List<NearbyStation> sorted(PriorityQueue<NearbyStation> best) {
+            List<NearbyStation> result = new ArrayList<>(best);
+            result.sort(Comparator.comparingDouble(NearbyStation::getDistanceMeters));
+            return result;
+        }
+
+        List<Station> within(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            List<Station> result = new ArrayList<>();
+            if (stations.length == 0) return result;
+            int fromRow = Math.max(0, (int) Math.floor((minLatitude - minLat) / cellSize));
+            int toRow = Math.min(rows - 1, (int) Math.floor((maxLatitude - minLat) / cellSize));
+            int fromCol = Math.max(0, (int) Math.floor((minLongitude - minLng) / cellSize));
+            int toCol = Math.min(cols - 1, (int) Math.floor((maxLongitude - minLng) / cellSize));
+            for (int row = fromRow; row <= toRow; row++) {
+                for (int col = fromCol; col <= toCol; col++) {
+                    int cell = row * cols + col;
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                        Station station = stations[cellStations[p]];
+                        if (station.getLatitude() >= minLatitude && station.getLatitude() <= maxLatitude
+                            && station.getLongitude() >= minLongitude && station.getLongitude() <= maxLongitude) {
+                            result.add(station);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.SuspensionRepo;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
+import com.opwa.opwa_be.model.Suspension;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Resolves each active suspension when its expectedEndTime passes. One delayed task per
+// suspension sits in the executor's delay queue; SuspensionChangedEvents move or cancel it,
+// so nothing ever rescans the suspensions collection after the startup load.
+@Service
+public class SuspensionExpiryScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(SuspensionExpiryScheduler.class);
+
+    @Autowired
+    private SuspensionRepo suspensionRepo;
+
+    @Autowired
+    private SuspensionService suspensionService;
+
+    private record Expiry(String metroLineId, LocalDateTime endTime, ScheduledFuture<?> task) {}
+
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "suspension-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Expiry> expiries = new ConcurrentHashMap<>();
+
+    public SuspensionExpiryScheduler() {
+        // Cancelled tasks leave the queue immediately instead of waiting for their deadline
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveSuspensions() {
+        int scheduled = 0;
+        for (Suspension suspension : suspensionRepo.findByIsActive(true)) {
+            if (schedule(suspension)) scheduled++;
+        }
+        log.info("Scheduled expiry for {} active suspension(s)", scheduled);
+    }
+
+    @EventListener
+    public void onSuspensionChanged(SuspensionChangedEvent event) {
+        if (event.isBulk()) {
+            expiries.entrySet().removeIf(entry -> {
+                boolean affected = event.getMetroLineId() == null
+                    || event.getMetroLineId().equals(entry.getValue().metroLineId());
+                if (affected) entry.getValue().task().cancel(false);
+                return affected;
+            });
+        } else if (event.isDeleted() || !event.getSuspension().isActive()) {
+            cancel(event.getSuspensionId());
+        } else {
+            schedule(event.getSuspension());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getScheduledCount() {
+        return expiries.size();
+    }
+
+    private boolean schedule(Suspension suspension) {
+        LocalDateTime endTime = suspension.getExpectedEndTime();
+        if (endTime == null) {
+            cancel(suspension.getId());
+            return false;
+        }
+        Expiry existing = expiries.get(suspension.getId());
+        if (existing != null && existing.endTime().equals(endTime)) return true;
+
+        long delayMillis = Math.max(0, Duration.between(LocalDateTime.now(), endTime).toMillis());
+        ScheduledFuture<?> task = executor.schedule(() -> expire(suspension.getId(), endTime), delayMillis, TimeUnit.MILLISECONDS);
+        Expiry previous = expiries.put(suspension.getId(), new Expiry(suspension.getMetroLineId(), endTime, task));
+        if (previous != null) previous.task().cancel(false);
+        return true;
+    }
+
+    private void cancel(String suspensionId) {
+        Expiry previous = expiries.remove(suspensionId);
+        if (previous != null) previous.task().cancel(false);
+    }
+
+    private void expire(String suspensionId, LocalDateTime endTime) {
+        Expiry current = expiries.get(suspensionId);
+        if (current == null || !current.endTime().equals(endTime)) return;
+        expiries.remove(suspensionId, current);
+        try {
+            // Another instance may have extended or resolved it since this deadline was scheduled
+            Suspension suspension = suspensionRepo.findById(suspensionId).orElse(null);
+            if (suspension == null || !suspension.isActive()) return;
+            // Mongo keeps millisecond precision, the scheduled time may carry nanoseconds
+            LocalDateTime storedEnd = suspension.getExpectedEndTime();
+            if (storedEnd == null || !storedEnd.truncatedTo(ChronoUnit.MILLIS).equals(endTime.truncatedTo(ChronoUnit.MILLIS))) {
+                schedule(suspension);
+                return;
+            }
+            log.info("Suspension {} reached its expected end time {}, resolving", suspensionId, endTime);
+            suspensionService.resolveSuspension(suspensionId);
+        } catch (RuntimeException e) {
+            log.error("Failed to expire suspension {}", suspensionId, e);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.MetroLineRepo;
+import com.opwa.opwa_be.dto.SuspensionImpact;
+import com.opwa.opwa_be.dto.SuspensionImpactRequest;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Trip;
+import com.opwa.opwa_be.planner.TransitNetwork;
+import com.opwa.opwa_be.planner.TravelTimeMatrix;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// What-if analysis of drafted suspensions over the in-memory transit network. Nothing is
+// saved: closed stops are dropped from a copy of the graph, each line's trips and station
+// pairs are checked in parallel, and only the broken pairs' origins get a shortest-path run.
+@Service
+public class SuspensionImpactService {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Autowired
+    private MetroLineRepo metroLineRepo;
+
+    @Autowired
+    private TravelTimeMatrixService travelTimeMatrixService;
+
+    private final ExecutorService impactExecutor;
+
+    public SuspensionImpactService(@Value("${metro.suspensions.impact-threads:4}") int impactThreads) {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        this.impactExecutor = Executors.newFixedThreadPool(Math.max(1, impactThreads), runnable -> {
+            Thread thread = new Thread(runnable, "suspension-impact-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        impactExecutor.shutdownNow();
+    }
+
+    public SuspensionImpact analyze(List<SuspensionImpactRequest> drafts) {
+        long start = System.nanoTime();
+        if (drafts == null || drafts.isEmpty()) {
+            throw new RuntimeException("At least one suspension draft is required");
+        }
+        Map<String, SuspensionImpactRequest> draftsByLine = new LinkedHashMap<>();
+        for (SuspensionImpactRequest draft : drafts) {
+            if (draftsByLine.put(draft.getLineId(), draft) != null) {
+                throw new RuntimeException("Duplicate suspension draft for line: " + draft.getLineId());
+            }
+        }
+        Set<String> knownLineIds = new HashSet<>();
+        metroLineRepo.findAllById(draftsByLine.keySet()).forEach(line -> knownLineIds.add(line.getLineId()));
+        for (String lineId : draftsByLine.keySet()) {
+            if (!knownLineIds.contains(lineId)) {
+                throw new RuntimeException("Metro line not found with id: " + lineId);
+            }
+        }
+
+        TravelTimeMatrix baseline = travelTimeMatrixService.getOrCompute();
+        TransitNetwork network = baseline.getNetwork();
+
+        // closed[route][position], null for routes the drafts leave untouched
+        boolean[][] closed = new boolean[network.routeCount()][];
+        Map<String, List<Integer>> routesByLine = new LinkedHashMap<>();
+        for (int r = 0; r < network.routeCount(); r++) {
+            SuspensionImpactRequest draft = draftsByLine.get(network.routeLineId(r));
+            if (draft == null) continue;
+            routesByLine.computeIfAbsent(draft.getLineId(), id -> new ArrayList<>()).add(r);
+            Set<String> affected = draft.getAffectedStationIds() == null ? Set.of() : Set.copyOf(draft.getAffectedStationIds());
+            closed[r] = new boolean[network.routeStopCount(r)];
+            for (int p = 0; p < closed[r].length; p++) {
+                closed[r][p] = affected.isEmpty() || affected.contains(network.stationId(network.routeStop(r, p)));
+            }
+        }
+        TravelTimeMatrix.ClosedStops closedStops = (route, position) -> closed[route] != null && closed[route][position];
+
+        List<CompletableFuture<SuspensionImpact.LineImpact>> futures = draftsByLine.values().stream()
+            .map(draft -> CompletableFuture.supplyAsync(() -> analyzeLine(draft,
+                routesByLine.getOrDefault(draft.getLineId(), List.of()), closed, closedStops, baseline), impactExecutor))
+            .toList();
+
+        SuspensionImpact impact = new SuspensionImpact();
+        for (CompletableFuture<SuspensionImpact.LineImpact> future : futures) {
+            SuspensionImpact.LineImpact lineImpact;
+            try {
+                lineImpact = future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            impact.getLines().add(lineImpact);
+            impact.setAffectedTripCount(impact.getAffectedTripCount() + lineImpact.getAffectedTripCount());
+            impact.setBrokenPairCount(impact.getBrokenPairCount() + lineImpact.getBrokenPairs().size());
+            impact.setClosedEndpointPairCount(impact.getClosedEndpointPairCount() + lineImpact.getClosedEndpointPairs().size());
+            for (SuspensionImpact.PairImpact pair : lineImpact.getBrokenPairs()) {
+                if (pair.getExtraMinutes() == null) {
+                    impact.setUnreachablePairCount(impact.getUnreachablePairCount() + 1);
+                } else {
+                    impact.setTotalExtraMinutes(impact.getTotalExtraMinutes() + pair.getExtraMinutes());
+                }
+            }
+        }
+        impact.setComputeMillis((System.nanoTime() - start) / 1_000_000);
+        return impact;
+    }
+
+    private SuspensionImpact.LineImpact analyzeLine(SuspensionImpactRequest draft, List<Integer> routes,
+                                                    boolean[][] closed, TravelTimeMatrix.ClosedStops closedStops,
+                                                    TravelTimeMatrix baseline) {
+        TransitNetwork network = baseline.getNetwork();
+        int n = network.stationCount();
+        SuspensionImpact.LineImpact lineImpact = new SuspensionImpact.LineImpact();
+        lineImpact.setLineId(draft.getLineId());
+
+        // Stop positions no trip serves inside the window; null when the window is the whole day
+        boolean[][] idle = draft.getFrom() == null && draft.getTo() == null
+            ? null : idleStops(network, draft.getFrom(), draft.getTo());
+
+        Set<String> closedStationIds = new LinkedHashSet<>();
+        // Pair keys are from * n + to, kept in discovery order
+        Set<Long> brokenPairs = new LinkedHashSet<>();
+        Set<Long> closedEndpointPairs = new LinkedHashSet<>();
+        for (int r : routes) {
+            int stopCount = network.routeStopCount(r);
+            List<Integer> closedPositions = new ArrayList<>();
+            for (int p = 0; p < stopCount; p++) {
+                if (closed[r][p]) {
+                    closedPositions.add(p);
+                    closedStationIds.add(network.stationId(network.routeStop(r, p)));
+                }
+            }
+
+            // A trip is affected when it is due at a closed stop inside the window
+            LineTimetable.StopPattern pattern = network.routePattern(r);
+            lineImpact.setTotalTripCount(lineImpact.getTotalTripCount() + network.routeTripCount(r));
+            for (int t = 0; t < network.routeTripCount(r); t++) {
+                int departure = network.tripDeparture(r, t);
+                for (int p : closedPositions) {
+                    if (inWindow(departure + network.routeStopOffset(r, p), draft.getFrom(), draft.getTo())) {
+                        lineImpact.getAffectedTripIds().add(Trip.buildTripId(
+                            draft.getLineId(), LineTimetable.minutesToTime(departure), pattern.isReturnTrip()));
+                        break;
+                    }
+                }
+            }
+
+            // A direct ride from i to j is broken when a stop in i..j is closed while the line serves it.
+            // Rides starting or ending at a closed stop have no alternative on this line's terms at
+            // all (walks out of the closed station would fake one), so they are reported apart.
+            int[] closedBefore = new int[stopCount + 1];
+            for (int p = 0; p < stopCount; p++) {
+                boolean inService = idle == null || !idle[r][p];
+                closedBefore[p + 1] = closedBefore[p] + (closed[r][p] && inService ? 1 : 0);
+            }
+            for (int i = 0; i < stopCount; i++) {
+                for (int j = i + 1; j < stopCount; j++) {
+                    if (closedBefore[j + 1] - closedBefore[i] == 0) continue;
+                    int from = network.routeStop(r, i);
+                    int to = network.routeStop(r, j);
+                    if (from == to) continue;
+                    if (closed[r][i] || closed[r][j]) {
+                        closedEndpointPairs.add((long) from * n + to);
+                    } else {
+                        brokenPairs.add((long) from * n + to);
+                    }
+                }
+            }
+        }
+        brokenPairs.removeAll(closedEndpointPairs);
+        lineImpact.setClosedStationIds(new ArrayList<>(closedStationIds));
+        lineImpact.setAffectedTripCount(lineImpact.getAffectedTripIds().size());
+
+        // One shortest-path run per distinct origin over the graph without the closed stops,
+        // and inside a window a matching baseline run over only the stops served in it
+        Map<Integer, Integer> originRows = new LinkedHashMap<>();
+        for (long key : brokenPairs) {
+            originRows.putIfAbsent((int) (key / n), originRows.size());
+        }
+        int[] origins = originRows.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[][] alternatives;
+        int[][] windowBaseline = null;
+        if (idle == null) {
+            alternatives = TravelTimeMatrix.minutesFrom(network, closedStops, origins);
+        } else {
+            TravelTimeMatrix.ClosedStops idleStops = (route, position) -> idle[route][position];
+            windowBaseline = TravelTimeMatrix.minutesFrom(network, idleStops, origins);
+            alternatives = TravelTimeMatrix.minutesFrom(network,
+                (route, position) -> idle[route][position] || closedStops.isClosed(route, position), origins);
+        }
+
+        for (long key : brokenPairs) {
+            int from = (int) (key / n);
+            int to = (int) (key % n);
+            int row = originRows.get(from);
+            int baselineMinutes = windowBaseline == null ? baseline.minutes(from, to) : windowBaseline[row][to];
+            if (baselineMinutes == TravelTimeMatrix.UNREACHABLE) continue;
+            int alternativeMinutes = alternatives[row][to];
+            SuspensionImpact.PairImpact pair = pairImpact(network, from, to, baselineMinutes);
+            if (alternativeMinutes != TravelTimeMatrix.UNREACHABLE) {
+                pair.setAlternativeMinutes(alternativeMinutes);
+                pair.setExtraMinutes(alternativeMinutes - baselineMinutes);
+            }
+            lineImpact.getBrokenPairs().add(pair);
+        }
+        for (long key : closedEndpointPairs) {
+            int from = (int) (key / n);
+            int to = (int) (key % n);
+            lineImpact.getClosedEndpointPairs().add(pairImpact(network, from, to, baseline.minutes(from, to)));
+        }
+        return lineImpact;
+    }
+
+    private static SuspensionImpact.PairImpact pairImpact(TransitNetwork network, int from, int to, int baselineMinutes) {
+        SuspensionImpact.PairImpact pair = new SuspensionImpact.PairImpact();
+        pair.setFromStationId(network.stationId(from));
+        pair.setToStationId(network.stationId(to));
+        pair.setBaselineMinutes(baselineMinutes);
+        return pair;
+    }
+
+    // idle[route][position] is true when no trip of the route is due there inside the window
+    private static boolean[][] idleStops(TransitNetwork network, LocalTime from, LocalTime to) {
+        boolean[][] idle = new boolean[network.routeCount()][];
+        for (int r = 0; r < network.routeCount(); r++) {
+            idle[r] = new boolean[network.routeStopCount(r)];
+            for (int p = 0; p < idle[r].length; p++) {
+                boolean served = false;
+                for (int t = 0; t < network.routeTripCount(r) && !served; t++) {
+                    served = inWindow(network.tripDeparture(r, t) + network.routeStopOffset(r, p), from, to);
+                }
+                idle[r][p] = !served;
+            }
+        }
+        return idle;
+    }
+
+    // Minutes past midnight wrap into the service day; to before from spans midnight
+    private static boolean inWindow(int minute, LocalTime from, LocalTime to) {
+        if (from == null && to == null) return true;
+        int m = minute % MINUTES_PER_DAY;
+        int start = from == null ? 0 : LineTimetable.timeToMinutes(from);
+        int end = to == null ? MINUTES_PER_DAY - 1 : LineTimetable.timeToMinutes(to);
+        return start <= end ? m >= start && m <= end : m >= start || m <= end;
+    }
+}
@@ -0,0 +1,148 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.SuspensionRepo;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Suspension;
+import com.opwa.opwa_be.model.Trip;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory view of the active suspensions: per line, a bitset of closed stations indexed by
+// station ordinal, plus the lines suspended as a whole (no affected stations listed). Readers
+// see an immutable state, so flagging a segment is two map lookups and a bit test.
+@Service
+public class SuspensionOverlay {
+
+    @Autowired
+    private SuspensionRepo suspensionRepo;
+
+    private final Map<String, Integer> stationOrdinals = new ConcurrentHashMap<>();
+    private final Map<String, Suspension> activeSuspensions = new HashMap<>();
+    private volatile State state;
+
+    private record State(Map<String, BitSet> closedStationsByLine, Map<String, Set<String>> closedStationIdsByLine,
+                         Set<String> closedLines) {}
+
+    // Runs right after the version bump so snapshot rebuilds triggered by the same event see it
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public synchronized void onSuspensionChanged(SuspensionChangedEvent event) {
+        if (state == null) return;
+        if (event.isBulk()) {
+            if (event.getMetroLineId() == null) {
+                activeSuspensions.clear();
+            } else {
+                activeSuspensions.values().removeIf(s -> event.getMetroLineId().equals(s.getMetroLineId()));
+            }
+        } else if (event.isDeleted() || !event.getSuspension().isActive()) {
+            activeSuspensions.remove(event.getSuspensionId());
+        } else {
+            activeSuspensions.put(event.getSuspensionId(), event.getSuspension());
+        }
+        state = buildState();
+    }
+
+    public boolean isLineSuspended(String lineId) {
+        return currentState().closedLines().contains(lineId);
+    }
+
+    public boolean isStationSuspended(String lineId, String stationId) {
+        State current = currentState();
+        return current.closedLines().contains(lineId) || isClosed(current.closedStationsByLine().get(lineId), stationId);
+    }
+
+    // Stations of the line that active suspensions close, every station when the whole line is
+    public Set<String> getClosedStationIds(MetroLine line) {
+        State current = currentState();
+        List<String> stationIds = line.getStationIds() == null ? List.of() : line.getStationIds();
+        if (current.closedLines().contains(line.getLineId())) return new TreeSet<>(stationIds);
+        Set<String> closedStationIds = current.closedStationIdsByLine().getOrDefault(line.getLineId(), Set.of());
+        Set<String> result = new TreeSet<>();
+        for (String stationId : stationIds) {
+            if (closedStationIds.contains(stationId)) result.add(stationId);
+        }
+        return result;
+    }
+
+    // Sets the suspended flag on every segment of the trip that touches a closed station
+    public Trip apply(Trip trip) {
+        State current = currentState();
+        boolean lineClosed = current.closedLines().contains(trip.getLineId());
+        BitSet closedStations = current.closedStationsByLine().get(trip.getLineId());
+        if (trip.getSegments() == null) return trip;
+        for (Trip.TripSegment segment : trip.getSegments()) {
+            segment.setSuspended(lineClosed
+                || isClosed(closedStations, segment.getFromStationId())
+                || isClosed(closedStations, segment.getToStationId()));
+        }
+        return trip;
+    }
+
+    // True when riding stationIds[boardStop..alightStop] on the line would touch a closed station
+    public boolean blocksRide(String lineId, List<String> stationIds, int boardStop, int alightStop) {
+        State current = currentState();
+        if (current.closedLines().contains(lineId)) return true;
+        BitSet closedStations = current.closedStationsByLine().get(lineId);
+        if (closedStations == null) return false;
+        for (int stop = boardStop; stop <= alightStop; stop++) {
+            if (isClosed(closedStations, stationIds.get(stop))) return true;
+        }
+        return false;
+    }
+
+    private boolean isClosed(BitSet closedStations, String stationId) {
+        if (closedStations == null || stationId == null) return false;
+        Integer ordinal = stationOrdinals.get(stationId);
+        return ordinal != null && closedStations.get(ordinal);
+    }
+
+    private State currentState() {
+        State current = state;
+        if (current != null) return current;
+        synchronized (this) {
+            if (state == null) {
+                activeSuspensions.clear();
+                for (Suspension suspension : suspensionRepo.findByIsActive(true)) {
+                    activeSuspensions.put(suspension.getId(), suspension);
+                }
+                state = buildState();
+            }
+            return state;
+        }
+    }
+
+    private State buildState() {
+        Map<String, BitSet> closedStationsByLine = new HashMap<>();
+        Map<String, Set<String>> closedStationIdsByLine = new HashMap<>();
+        Set<String> closedLines = new HashSet<>();
+        for (Suspension suspension : activeSuspensions.values()) {
+            String lineId = suspension.getMetroLineId();
+            if (lineId == null) continue;
+            List<String> stationIds = suspension.getAffectedStationIds();
+            if (stationIds == null || stationIds.isEmpty()) {
+                closedLines.add(lineId);
+                continue;
+            }
+            BitSet closedStations = closedStationsByLine.computeIfAbsent(lineId, id -> new BitSet());
+            closedStationIdsByLine.computeIfAbsent(lineId, id -> new HashSet<>()).addAll(stationIds);
+            for (String stationId : stationIds) {
+                closedStations.set(stationOrdinals.computeIfAbsent(stationId, id -> stationOrdinals.size()));
+            }
+        }
+        return new State(closedStationsByLine, closedStationIdsByLine, closedLines);
+    }
+}
@@ -0,0 +1,32 @@
+package com.opwa.opwa_be.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Periodically backfills suspension records for lines flagged as suspended without one,
+// work that used to happen inside GET /api/suspensions
+@Component
+public class SuspensionReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(SuspensionReconciler.class);
+
+    @Autowired
+    private SuspensionService suspensionService;
+
+    @Scheduled(
+        initialDelayString = "${metro.suspensions.reconcile-initial-delay-ms:30000}",
+        fixedDelayString = "${metro.suspensions.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            int created = suspensionService.reconcileSuspendedLines();
+            if (created > 0) {
+                log.info("Created {} automatic suspension record(s) for suspended lines", created);
+            }
+        } catch (RuntimeException e) {
+            log.error("Suspension reconciliation failed", e);
+        }
+    }
+}
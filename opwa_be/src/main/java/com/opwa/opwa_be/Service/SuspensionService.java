@@ -2,15 +2,25 @@ package com.opwa.opwa_be.Service;
 
 import com.opwa.opwa_be.Repository.MetroLineRepo;
 import com.opwa.opwa_be.Repository.SuspensionRepo;
+import com.opwa.opwa_be.event.MetroLineChangedEvent;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
 import com.opwa.opwa_be.model.MetroLine;
 import com.opwa.opwa_be.model.Suspension;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,35 +32,77 @@ public class SuspensionService {
     @Autowired
     private MetroLineRepo metroLineRepo;
 
-    // In SuspensionService.java
-    public List<Suspension> getAllSuspensions() {
-        // Get manual suspensions
-        List<Suspension> manualSuspensions = suspensionRepo.findAll();
+    @Autowired
+    private SequenceGeneratorService sequenceGeneratorService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private static final DateTimeFormatter AUTO_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    // Only ids generateSuspensionId produced seed the sequence; AUTO and legacy ids are ignored
+    private static final Pattern GENERATED_ID = Pattern.compile("^SUSP-[^-]+-\\d{8}-(\\d+)$");
 
-        // Get suspended lines without suspension records
-        List<MetroLine> suspendedLines = metroLineRepo.findByIsSuspended(true).stream()
-                .filter(line -> !suspensionRepo.existsByMetroLineIdAndIsActive(line.getLineId(), true))
-                .collect(Collectors.toList());
+    public List<Suspension> getAllSuspensions() {
+        return suspensionRepo.findAll();
+    }
 
-        // Convert suspended lines to suspensions
-        List<Suspension> autoSuspensions = suspendedLines.stream().map(line -> {
+    // Creates "AUTOMATIC_DETECTION" suspensions for suspended lines that have no active suspension.
+    // The lines are found with one aggregation, and the record id is derived from the line and its
+    // suspension start, so concurrent reconcilers on other nodes collide on insert instead of duplicating.
+    // Ids end in "-AUTO" so no trailing digits ever reach the suspension sequence seed.
+    public int reconcileSuspendedLines() {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("isSuspended").is(true)),
+            Aggregation.lookup("suspensions", "_id", "metroLineId", "suspensions"),
+            Aggregation.match(Criteria.where("suspensions").not().elemMatch(Criteria.where("isActive").is(true))),
+            Aggregation.project().andExclude("suspensions"));
+        List<MetroLine> unrecordedLines = mongoTemplate.aggregate(aggregation, MetroLine.class, MetroLine.class)
+            .getMappedResults();
+
+        int created = 0;
+        for (MetroLine line : unrecordedLines) {
             Suspension suspension = new Suspension();
+            LocalDateTime since = claimSuspensionStart(line);
+            suspension.setId(String.format("SUSP-%s-%s-AUTO", line.getLineId(), since.format(AUTO_ID_FORMAT)));
             suspension.setMetroLineId(line.getLineId());
             suspension.setLineName(line.getLineName());
             suspension
                     .setReason(line.getSuspensionReason() != null ? line.getSuspensionReason() : "AUTOMATIC_DETECTION");
             suspension.setAffectedStationIds(line.getStationIds());
-            suspension.setStartTime(
-                    line.getSuspensionStartTime() != null ? line.getSuspensionStartTime() : LocalDateTime.now());
+            suspension.setStartTime(since);
             suspension.setExpectedEndTime(line.getSuspensionEndTime() != null ? line.getSuspensionEndTime()
                     : LocalDateTime.now().plusHours(1));
             suspension.setActive(true);
-            return suspensionRepo.save(suspension);
-        }).collect(Collectors.toList());
+            try {
+                Suspension saved = mongoTemplate.insert(suspension);
+                eventPublisher.publishEvent(SuspensionChangedEvent.saved(saved));
+                created++;
+            } catch (DuplicateKeyException e) {
+                // Another node recorded it first
+            }
+        }
+        return created;
+    }
 
-        // Combine results
-        manualSuspensions.addAll(autoSuspensions);
-        return manualSuspensions;
+    // A suspended line without a start time gets one stamped atomically, so every node derives
+    // the same id for this suspension and a later one on the line gets a different id
+    private LocalDateTime claimSuspensionStart(MetroLine line) {
+        if (line.getSuspensionStartTime() != null) return line.getSuspensionStartTime();
+        mongoTemplate.updateFirst(
+            Query.query(Criteria.where("_id").is(line.getLineId()).and("suspensionStartTime").is(null)),
+            Update.update("suspensionStartTime", LocalDateTime.now().withNano(0)),
+            MetroLine.class);
+        MetroLine claimed = mongoTemplate.findById(line.getLineId(), MetroLine.class);
+        if (claimed != null) {
+            eventPublisher.publishEvent(new MetroLineChangedEvent(claimed.getLineId(), claimed));
+        }
+        line.setSuspensionStartTime(claimed != null && claimed.getSuspensionStartTime() != null
+            ? claimed.getSuspensionStartTime() : LocalDateTime.now().withNano(0));
+        return line.getSuspensionStartTime();
     }
 
     public List<Suspension> getSuspensionsByStatus(boolean active) {
@@ -74,13 +126,12 @@ public class SuspensionService {
         return suspensionRepo.findByAffectedStationIdsContaining(stationId);
     }
 
-    // Add this field to your service (or use a DB sequence for production)
-    private static final AtomicLong SUSP_SEQ = new AtomicLong(1);
-
     private String generateSuspensionId(String metroLineId) {
         // Example: SUSP-LN3-20240517-0001
         String datePart = java.time.LocalDate.now().toString().replace("-", "");
-        long seq = SUSP_SEQ.getAndIncrement();
+        long seq = sequenceGeneratorService.next(SequenceGeneratorService.SUSPENSION_SEQUENCE,
+                () -> SequenceGeneratorService.maxNumber(
+                        suspensionRepo.findAll().stream().map(Suspension::getId), GENERATED_ID));
         return String.format("SUSP-%s-%s-%04d", metroLineId, datePart, seq);
     }
 
@@ -108,10 +159,10 @@ public class SuspensionService {
             } else {
                 line.setActive(true);
             }
-            metroLineRepo.save(line);
+            saveLine(line);
         });
 
-        return suspensionRepo.save(suspension);
+        return saveSuspension(suspension);
     }
 
     public Suspension updateSuspensionDetails(
@@ -155,10 +206,10 @@ public class SuspensionService {
                     if (newDurationHours != null) {
                         line.setSuspensionEndTime(suspension.getExpectedEndTime());
                     }
-                    metroLineRepo.save(line);
+                    saveLine(line);
                 });
 
-                return suspensionRepo.save(suspension);
+                return saveSuspension(suspension);
             }
 
             return suspension; // No changes
@@ -182,11 +233,11 @@ public class SuspensionService {
             metroLineRepo.findById(suspension.getMetroLineId()).ifPresent(line -> {
                 if (currentStations.size() >= 3) {
                     line.setActive(false);
-                    metroLineRepo.save(line);
+                    saveLine(line);
                 }
             });
 
-            return suspensionRepo.save(suspension);
+            return saveSuspension(suspension);
         }).orElseThrow(() -> new RuntimeException("Suspension not found"));
     }
 
@@ -194,14 +245,14 @@ public class SuspensionService {
         suspensionRepo.findById(suspensionId).ifPresent(suspension -> {
             suspension.setActive(false);
             suspension.setUpdatedAt(LocalDateTime.now());
-            suspensionRepo.save(suspension);
+            saveSuspension(suspension);
 
             metroLineRepo.findById(suspension.getMetroLineId()).ifPresent(line -> {
                 line.setSuspended(false);
                 line.setSuspensionReason(null);
                 line.setSuspensionStartTime(null);
                 line.setSuspensionEndTime(null);
-                metroLineRepo.save(line);
+                saveLine(line);
             });
         });
     }
@@ -215,10 +266,10 @@ public class SuspensionService {
             // Update metro line end time
             metroLineRepo.findById(suspension.getMetroLineId()).ifPresent(line -> {
                 line.setSuspensionEndTime(suspension.getExpectedEndTime());
-                metroLineRepo.save(line);
+                saveLine(line);
             });
 
-            return suspensionRepo.save(suspension);
+            return saveSuspension(suspension);
         }).orElseThrow(() -> new RuntimeException("Suspension not found with id: " + suspensionId));
     }
 
@@ -231,19 +282,22 @@ public class SuspensionService {
                     line.setSuspensionReason(null);
                     line.setSuspensionStartTime(null);
                     line.setSuspensionEndTime(null);
-                    metroLineRepo.save(line);
+                    saveLine(line);
                 });
             }
             suspensionRepo.deleteById(suspensionId);
+            eventPublisher.publishEvent(SuspensionChangedEvent.deleted(suspension));
         });
     }
 
     public void deleteAllSuspensions() {
         suspensionRepo.deleteAll();
+        eventPublisher.publishEvent(SuspensionChangedEvent.allSuspensions());
     }
 
     public void deleteAllSuspensionsByLineId(String lineId) {
         suspensionRepo.deleteAll(suspensionRepo.findByMetroLineId(lineId));
+        eventPublisher.publishEvent(SuspensionChangedEvent.allForLine(lineId));
     }
 
     public void updateMetroLineSuspendedStatus(String metroLineId) {
@@ -265,7 +319,7 @@ public class SuspensionService {
             }
             // Optionally, also update "active" status if you want to keep logic together:
             line.setActive(affectedStationCount < 3);
-            metroLineRepo.save(line);
+            saveLine(line);
         });
     }
 
@@ -277,11 +331,22 @@ public class SuspensionService {
                     suspension.setActive(false);
                 }
                 suspension.setUpdatedAt(java.time.LocalDateTime.now());
-                suspensionRepo.save(suspension);
+                saveSuspension(suspension);
                 // Optionally, update metro line status
                 updateMetroLineSuspendedStatus(suspension.getMetroLineId());
             }
             return suspension;
         }).orElseThrow(() -> new RuntimeException("Suspension not found"));
     }
-}
\ No newline at end of file
+
+    private Suspension saveSuspension(Suspension suspension) {
+        Suspension saved = suspensionRepo.save(suspension);
+        eventPublisher.publishEvent(SuspensionChangedEvent.saved(saved));
+        return saved;
+    }
+
+    private void saveLine(MetroLine line) {
+        MetroLine saved = metroLineRepo.save(line);
+        eventPublisher.publishEvent(new MetroLineChangedEvent(saved.getLineId(), saved));
+    }
+}
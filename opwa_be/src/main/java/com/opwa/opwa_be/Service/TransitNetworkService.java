@@ -0,0 +1,87 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.MetroLineRepo;
+import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.event.TripsRegeneratedEvent;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.planner.TransitNetwork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Holds the current TransitNetwork snapshot, rebuilt lazily after any timetable change
+@Service
+public class TransitNetworkService {
+
+    private static final Logger log = LoggerFactory.getLogger(TransitNetworkService.class);
+
+    @Autowired
+    private MetroLineRepo metroLineRepo;
+
+    @Autowired
+    private StationRepo stationRepo;
+
+    @Autowired
+    private TripStorageService tripStorageService;
+
+    @Value("${metro.journey.transfer-radius-meters:300}")
+    private double transferRadiusMeters;
+
+    @Value("${metro.journey.min-transfer-minutes:2}")
+    private int minTransferMinutes;
+
+    private volatile TransitNetwork network;
+    // Bumped by every invalidation; a rebuild that overlapped one is returned but not published
+    private final AtomicLong generation = new AtomicLong();
+
+    // Runs before other listeners so anything they rebuild sees the new timetable
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onTripsRegenerated(TripsRegeneratedEvent event) {
+        invalidate();
+    }
+
+    // Station coordinates decide the walking transfers
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStationChanged(StationChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        network = null;
+    }
+
+    public TransitNetwork getNetwork() {
+        TransitNetwork current = network;
+        if (current != null) return current;
+        synchronized (this) {
+            if (network != null) return network;
+            long buildGeneration = generation.get();
+            long start = System.nanoTime();
+            List<LineTimetable> timetables = metroLineRepo.findAll().stream()
+                .map(MetroLine::getLineId)
+                .map(tripStorageService::findTimetable)
+                .toList();
+            TransitNetwork built = TransitNetwork.build(timetables, stationRepo.findAll(), transferRadiusMeters, minTransferMinutes);
+            log.info("Built transit network with {} stations and {} routes in {} ms",
+                built.stationCount(), built.routeCount(), (System.nanoTime() - start) / 1_000_000);
+            if (generation.get() == buildGeneration) {
+                network = built;
+            }
+            return built;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.dto.TravelTimeMatrixDTO;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.event.TripsRegeneratedEvent;
+import com.opwa.opwa_be.planner.TransitNetwork;
+import com.opwa.opwa_be.planner.TravelTimeMatrix;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps an all-pairs travel time matrix; line changes trigger a background recompute
+// while the previous matrix keeps being served.
+@Service
+public class TravelTimeMatrixService {
+
+    private static final Logger log = LoggerFactory.getLogger(TravelTimeMatrixService.class);
+
+    @Autowired
+    private TransitNetworkService transitNetworkService;
+
+    private final ExecutorService recomputeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "travel-time-matrix");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean recomputeQueued = new AtomicBoolean(false);
+
+    private volatile TravelTimeMatrix matrix;
+    private volatile LocalDateTime computedAt;
+
+    @EventListener
+    public void onTripsRegenerated(TripsRegeneratedEvent event) {
+        scheduleRecompute();
+    }
+
+    @EventListener
+    public void onStationChanged(StationChangedEvent event) {
+        scheduleRecompute();
+    }
+
+    private void scheduleRecompute() {
+        // Several edits in a burst collapse into one recompute
+        if (recomputeQueued.compareAndSet(false, true)) {
+            recomputeExecutor.submit(() -> {
+                recomputeQueued.set(false);
+                try {
+                    recompute();
+                } catch (RuntimeException e) {
+                    log.error("Travel time matrix recompute failed", e);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        recomputeExecutor.shutdownNow();
+    }
+
+    public TravelTimeMatrixDTO getMatrix() {
+        TravelTimeMatrix current = getOrCompute();
+        TransitNetwork network = current.getNetwork();
+        TravelTimeMatrixDTO dto = new TravelTimeMatrixDTO();
+        dto.setStationIds(Arrays.asList(network.stationIds()));
+        dto.setMinutes(current.getMinutes());
+        dto.setHops(current.getHops());
+        dto.setComputedAt(computedAt);
+        return dto;
+    }
+
+    public Map<String, Object> getTravelTime(String fromStationId, String toStationId) {
+        TravelTimeMatrix current = getOrCompute();
+        TransitNetwork network = current.getNetwork();
+        int from = network.stationOrdinal(fromStationId);
+        int to = network.stationOrdinal(toStationId);
+        if (from < 0 || to < 0) {
+            throw new RuntimeException("Station not found in network: " + (from < 0 ? fromStationId : toStationId));
+        }
+        return Map.of(
+            "fromStationId", fromStationId,
+            "toStationId", toStationId,
+            "minutes", current.minutes(from, to),
+            "hops", current.hops(from, to)
+        );
+    }
+
+    // Also the baseline for SuspensionImpactService
+    TravelTimeMatrix getOrCompute() {
+        TravelTimeMatrix current = matrix;
+        return current != null ? current : recompute();
+    }
+
+    private synchronized TravelTimeMatrix recompute() {
+        long start = System.nanoTime();
+        TravelTimeMatrix computed = TravelTimeMatrix.compute(transitNetworkService.getNetwork());
+        matrix = computed;
+        computedAt = LocalDateTime.now();
+        log.info("Computed travel time matrix for {} stations in {} ms",
+            computed.getNetwork().stationCount(), (System.nanoTime() - start) / 1_000_000);
+        return computed;
+    }
+}
@@ -0,0 +1,154 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Trip;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Builds a line's timetable purely from the MetroLine document, without touching storage
+@Component
+public class TripBuilder {
+
+    public static final LocalTime DEFAULT_LAST_DEPARTURE = LocalTime.of(22, 0);
+
+    // Part of the inputs signature; bump when the stored trip document shape changes so
+    // existing trips get rewritten on the next regeneration pass
+    static final int TRIP_SCHEMA_VERSION = 2;
+
+    // Also part of the signature: trips stored under one mode are invisible to another,
+    // so switching modes must not look like an up-to-date line
+    @Value("${metro.trips.storage-mode:DOCUMENTS}")
+    private TripStorageService.StorageMode storageMode;
+
+    public List<Trip> buildTrips(MetroLine metroLine, LocalTime lastDeparture) {
+        List<Trip> trips = new ArrayList<>();
+        List<String> stationIds = metroLine.getStationIds();
+        if (stationIds == null || stationIds.size() < 2) return trips;
+
+        int totalStations = stationIds.size();
+        int segmentDuration = metroLine.getTotalDuration() / (totalStations - 1);
+        int intervalMinutes = 10;
+
+        // FORWARD TRIPS
+        LocalTime currentDeparture = metroLine.getFirstDeparture().toLocalTime();
+        while (!currentDeparture.isAfter(lastDeparture)) {
+            Trip trip = new Trip();
+            trip.setLineId(metroLine.getLineId());
+            trip.setTripId(Trip.buildTripId(metroLine.getLineId(), currentDeparture, false));
+            trip.setDepartureTime(currentDeparture);
+            trip.setReturnTrip(false);
+
+            List<Trip.TripSegment> segments = new ArrayList<>();
+            LocalTime currentTime = currentDeparture;
+            for (int i = 0; i < totalStations - 1; i++) {
+                Trip.TripSegment segment = new Trip.TripSegment();
+                segment.setFromStationId(stationIds.get(i));
+                segment.setToStationId(stationIds.get(i + 1));
+                segment.setDepartureTime(currentTime);
+                segment.setArrivalTime(currentTime.plusMinutes(segmentDuration));
+                segment.setDurationMinutes(segmentDuration);
+                segments.add(segment);
+                currentTime = currentTime.plusMinutes(segmentDuration);
+            }
+            trip.setSegments(segments);
+            trip.setArrivalTime(currentTime);
+            trips.add(trip);
+
+            // Next trip starts after previous arrival + interval
+            currentDeparture = currentTime.plusMinutes(intervalMinutes);
+        }
+
+        // RETURN TRIPS (independent sequence)
+        List<String> reversedStationIds = new ArrayList<>(stationIds);
+        Collections.reverse(reversedStationIds);
+        LocalTime returnDeparture = metroLine.getFirstDeparture().toLocalTime();
+        while (!returnDeparture.isAfter(lastDeparture)) {
+            Trip trip = new Trip();
+            trip.setLineId(metroLine.getLineId());
+            trip.setTripId(Trip.buildTripId(metroLine.getLineId(), returnDeparture, true));
+            trip.setDepartureTime(returnDeparture);
+            trip.setReturnTrip(true);
+
+            List<Trip.TripSegment> segments = new ArrayList<>();
+            LocalTime currentTime = returnDeparture;
+            for (int i = 0; i < totalStations - 1; i++) {
+                Trip.TripSegment segment = new Trip.TripSegment();
+                segment.setFromStationId(reversedStationIds.get(i));
+                segment.setToStationId(reversedStationIds.get(i + 1));
+                segment.setDepartureTime(currentTime);
+                segment.setArrivalTime(currentTime.plusMinutes(segmentDuration));
+                segment.setDurationMinutes(segmentDuration);
+                segments.add(segment);
+                currentTime = currentTime.plusMinutes(segmentDuration);
+            }
+            trip.setSegments(segments);
+            trip.setArrivalTime(currentTime);
+            trips.add(trip);
+
+            // Next return trip starts after previous arrival + interval
+            returnDeparture = currentTime.plusMinutes(intervalMinutes);
+        }
+
+        return trips;
+    }
+
+    // Degraded timetable for a line with closed stations: every trip is cut at the closed stops
+    // and each remaining run of open stops becomes a short-turn trip with the original timings
+    public List<Trip> buildTrips(MetroLine metroLine, LocalTime lastDeparture, Set<String> closedStationIds) {
+        List<Trip> trips = buildTrips(metroLine, lastDeparture);
+        if (closedStationIds.isEmpty()) return trips;
+        List<Trip> degraded = new ArrayList<>();
+        for (Trip trip : trips) {
+            List<Trip.TripSegment> run = new ArrayList<>();
+            for (Trip.TripSegment segment : trip.getSegments()) {
+                if (closedStationIds.contains(segment.getFromStationId()) || closedStationIds.contains(segment.getToStationId())) {
+                    addShortTurn(trip, run, degraded);
+                    run = new ArrayList<>();
+                } else {
+                    run.add(segment);
+                }
+            }
+            addShortTurn(trip, run, degraded);
+        }
+        return degraded;
+    }
+
+    private void addShortTurn(Trip trip, List<Trip.TripSegment> run, List<Trip> out) {
+        if (run.isEmpty()) return;
+        // Ids follow the departure from the run's first stop, as a compressed timetable would rebuild them
+        Trip shortTurn = new Trip();
+        shortTurn.setLineId(trip.getLineId());
+        shortTurn.setDepartureTime(run.get(0).getDepartureTime());
+        shortTurn.setTripId(Trip.buildTripId(trip.getLineId(), shortTurn.getDepartureTime(), trip.isReturnTrip()));
+        shortTurn.setReturnTrip(trip.isReturnTrip());
+        shortTurn.setSegments(run);
+        shortTurn.setArrivalTime(run.get(run.size() - 1).getArrivalTime());
+        out.add(shortTurn);
+    }
+
+    // Everything the generated trips depend on; equal signatures produce identical timetables
+    public String buildInputsSignature(MetroLine line, LocalTime lastDeparture) {
+        return String.join("|",
+            "v" + TRIP_SCHEMA_VERSION,
+            String.valueOf(storageMode),
+            String.valueOf(line.getStationIds()),
+            String.valueOf(line.getTotalDuration()),
+            String.valueOf(line.getFrequencyMinutes()),
+            line.getFirstDeparture() != null ? line.getFirstDeparture().toLocalTime().toString() : "null",
+            lastDeparture.toString());
+    }
+
+    // Undisrupted lines keep their plain signature, so suspensions elsewhere never rewrite them
+    public String buildInputsSignature(MetroLine line, LocalTime lastDeparture, Set<String> closedStationIds) {
+        String signature = buildInputsSignature(line, lastDeparture);
+        return closedStationIds.isEmpty() ? signature : signature + "|closed=" + new TreeSet<>(closedStationIds);
+    }
+}
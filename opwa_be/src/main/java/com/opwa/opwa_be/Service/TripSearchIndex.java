@@ -0,0 +1,197 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.MetroLineRepo;
+import com.opwa.opwa_be.event.TripsRegeneratedEvent;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Trip;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// In-memory station -> (trip, stop position, departure minute) index backing searchTrips.
+// Postings of each station are sorted by departure so a time window is two binary searches.
+@Service
+public class TripSearchIndex {
+
+    private static final int APPROXIMATE_WINDOW_MINUTES = 15;
+
+    @Autowired
+    private MetroLineRepo metroLineRepo;
+
+    @Autowired
+    private TripStorageService tripStorageService;
+
+    @Autowired
+    private SuspensionOverlay suspensionOverlay;
+
+    // Never mutated once published; refreshes build a new map and swap it in,
+    // so a search always sees either the previous indexes or the complete new ones
+    private volatile Map<String, LineIndex> lineIndexes;
+    private final Set<String> staleLines = ConcurrentHashMap.newKeySet();
+    private volatile boolean reloadRequested = false;
+
+    @EventListener
+    public void onTripsRegenerated(TripsRegeneratedEvent event) {
+        if (event.affectsAllLines()) {
+            reloadRequested = true;
+        } else {
+            staleLines.add(event.getLineId());
+        }
+    }
+
+    public List<Trip> search(String fromStationId, String toStationId, LocalTime approximateTime) {
+        Map<String, LineIndex> indexes = currentIndexes();
+        int windowStart = Integer.MIN_VALUE;
+        int windowEnd = Integer.MAX_VALUE;
+        if (approximateTime != null) {
+            int approx = LineTimetable.timeToMinutes(approximateTime);
+            windowStart = approx - APPROXIMATE_WINDOW_MINUTES;
+            windowEnd = approx + APPROXIMATE_WINDOW_MINUTES;
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (LineIndex index : indexes.values()) {
+            index.collect(fromStationId, toStationId, windowStart, windowEnd, suspensionOverlay, matches);
+        }
+        matches.sort(Comparator.comparingInt(Match::boardingMinute));
+        return matches.stream().map(match -> suspensionOverlay.apply(match.trip())).toList();
+    }
+
+    // Callers that find the indexes out of date wait for the rebuild rather than reading a partial one
+    private Map<String, LineIndex> currentIndexes() {
+        Map<String, LineIndex> current = lineIndexes;
+        if (current != null && !reloadRequested && staleLines.isEmpty()) return current;
+        synchronized (this) {
+            if (lineIndexes == null || reloadRequested) {
+                // Cleared before the scan so an invalidation arriving mid-rebuild triggers another one
+                reloadRequested = false;
+                staleLines.clear();
+                Map<String, LineIndex> rebuilt = new HashMap<>();
+                for (MetroLine line : metroLineRepo.findAll()) {
+                    indexLine(rebuilt, line.getLineId());
+                }
+                lineIndexes = rebuilt;
+            } else if (!staleLines.isEmpty()) {
+                Map<String, LineIndex> updated = new HashMap<>(lineIndexes);
+                for (String lineId : new ArrayList<>(staleLines)) {
+                    staleLines.remove(lineId);
+                    indexLine(updated, lineId);
+                }
+                lineIndexes = updated;
+            }
+            return lineIndexes;
+        }
+    }
+
+    private void indexLine(Map<String, LineIndex> indexes, String lineId) {
+        LineTimetable timetable = tripStorageService.findTimetable(lineId);
+        if (timetable.getPatterns() == null || timetable.getPatterns().isEmpty()) {
+            indexes.remove(lineId);
+        } else {
+            indexes.put(lineId, new LineIndex(timetable));
+        }
+    }
+
+    private record Match(int boardingMinute, Trip trip) {}
+
+    private static final class LineIndex {
+        private final String lineId;
+        private final List<LineTimetable.StopPattern> patterns;
+        // Per pattern: station id -> stop position
+        private final List<Map<String, Integer>> stopPositions = new ArrayList<>();
+        private final Map<String, Postings> postingsByStation = new HashMap<>();
+
+        LineIndex(LineTimetable timetable) {
+            this.lineId = timetable.getLineId();
+            this.patterns = timetable.getPatterns();
+
+            Map<String, List<int[]>> entriesByStation = new HashMap<>();
+            for (int p = 0; p < patterns.size(); p++) {
+                LineTimetable.StopPattern pattern = patterns.get(p);
+                Map<String, Integer> positions = new HashMap<>();
+                List<String> stationIds = pattern.getStationIds();
+                for (int stop = 0; stop < stationIds.size(); stop++) {
+                    positions.put(stationIds.get(stop), stop);
+                }
+                stopPositions.add(positions);
+
+                // The last stop has no onward departure, so it is never a boarding point
+                for (int stop = 0; stop < stationIds.size() - 1; stop++) {
+                    List<int[]> entries = entriesByStation.computeIfAbsent(stationIds.get(stop), k -> new ArrayList<>());
+                    for (int trip = 0; trip < pattern.tripCount(); trip++) {
+                        int minute = pattern.getDepartureMinutes()[trip] + pattern.getStopOffsets()[stop];
+                        entries.add(new int[] {minute, p, trip, stop});
+                    }
+                }
+            }
+            entriesByStation.forEach((stationId, entries) -> postingsByStation.put(stationId, new Postings(entries)));
+        }
+
+        // Rides that would pass through a station closed by an active suspension are left out
+        void collect(String fromStationId, String toStationId, int windowStart, int windowEnd,
+                     SuspensionOverlay overlay, List<Match> out) {
+            Postings postings = postingsByStation.get(fromStationId);
+            if (postings == null || overlay.isLineSuspended(lineId)) return;
+            int from = postings.lowerBound(windowStart);
+            int to = postings.lowerBound(windowEnd == Integer.MAX_VALUE ? windowEnd : windowEnd + 1);
+            for (int k = from; k < to; k++) {
+                Integer alightStop = stopPositions.get(postings.patterns[k]).get(toStationId);
+                if (alightStop != null && alightStop > postings.stops[k]) {
+                    LineTimetable.StopPattern pattern = patterns.get(postings.patterns[k]);
+                    if (overlay.blocksRide(lineId, pattern.getStationIds(), postings.stops[k], alightStop)) continue;
+                    Trip trip = pattern.toTrip(lineId, postings.trips[k]);
+                    out.add(new Match(postings.minutes[k], trip));
+                }
+            }
+        }
+    }
+
+    private static final class Postings {
+        private final int[] minutes;
+        private final int[] patterns;
+        private final int[] trips;
+        private final int[] stops;
+
+        Postings(List<int[]> entries) {
+            entries.sort(Comparator.comparingInt(e -> e[0]));
+            int size = entries.size();
+            minutes = new int[size];
+            patterns = new int[size];
+            trips = new int[size];
+            stops = new int[size];
+            for (int i = 0; i < size; i++) {
+                int[] entry = entries.get(i);
+                minutes[i] = entry[0];
+                patterns[i] = entry[1];
+                trips[i] = entry[2];
+                stops[i] = entry[3];
+            }
+        }
+
+        // First position whose minute is >= the given minute
+        int lowerBound(int minute) {
+            int lo = 0;
+            int hi = minutes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (minutes[mid] < minute) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
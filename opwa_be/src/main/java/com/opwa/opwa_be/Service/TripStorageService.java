@@ -0,0 +1,401 @@
+package com.opwa.opwa_be.Service;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.opwa.opwa_be.Repository.MetroLineRepo;
+import com.opwa.opwa_be.dto.TripFilter;
+import com.opwa.opwa_be.event.TripsRegeneratedEvent;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Trip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+public class TripStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(TripStorageService.class);
+
+    private static final String COLLECTION_PREFIX = "trips_";
+    private static final String STAGING_SUFFIX = "_staging_";
+    private static final String BACKUP_SUFFIX = "_normal";
+
+    private static final Comparator<Trip> TRIP_ORDER = Comparator
+        .comparingInt((Trip trip) -> LineTimetable.timeToMinutes(trip.getDepartureTime()))
+        .thenComparing(Trip::getTripId);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MetroLineRepo metroLineRepo;
+
+    @Autowired
+    private TripBuilder tripBuilder;
+
+    @Autowired
+    private SuspensionOverlay suspensionOverlay;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${metro.trips.write-batch-size:500}")
+    private int writeBatchSize;
+
+    // DOCUMENTS keeps one document per trip in trips_<lineId>,
+    // PATTERN keeps a single compressed LineTimetable document per line,
+    // VIRTUAL stores nothing and derives the timetable from the MetroLine on read
+    @Value("${metro.trips.storage-mode:DOCUMENTS}")
+    private StorageMode storageMode;
+
+    @Value("${metro.trips.virtual.cache-size:64}")
+    private int virtualCacheSize;
+
+    public enum StorageMode {
+        DOCUMENTS,
+        PATTERN,
+        VIRTUAL
+    }
+
+    private record CachedTimetable(String signature, LineTimetable timetable) {}
+
+    // Small LRU of computed virtual timetables, keyed by line and validated by input signature
+    private final Map<String, CachedTimetable> virtualCache = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedTimetable> eldest) {
+                return size() > virtualCacheSize;
+            }
+        });
+
+    public static String collectionName(String lineId) {
+        return COLLECTION_PREFIX + lineId;
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public List<Trip> findTrips(String lineId) {
+        if (storageMode == StorageMode.VIRTUAL) {
+            return metroLineRepo.findById(lineId)
+                .map(line -> virtualTimetable(line).toTrips())
+                .orElseGet(ArrayList::new);
+        }
+        if (storageMode == StorageMode.PATTERN) {
+            LineTimetable timetable = mongoTemplate.findById(lineId, LineTimetable.class);
+            return timetable == null ? new ArrayList<>() : timetable.toTrips();
+        }
+        return mongoTemplate.findAll(Trip.class, collectionName(lineId));
+    }
+
+    public List<Trip> findTrips(MetroLine line) {
+        if (storageMode == StorageMode.VIRTUAL) {
+            return virtualTimetable(line).toTrips();
+        }
+        return findTrips(line.getLineId());
+    }
+
+    // Trips of several lines grouped by line id, with one round trip whatever the line count:
+    // a $unionWith aggregation over the per-line collections, or one $in over the timetables
+    public Map<String, List<Trip>> findTrips(List<MetroLine> lines) {
+        Map<String, List<Trip>> tripsByLine = new LinkedHashMap<>();
+        if (lines.isEmpty()) return tripsByLine;
+        for (MetroLine line : lines) {
+            tripsByLine.put(line.getLineId(), new ArrayList<>());
+        }
+        if (storageMode == StorageMode.VIRTUAL) {
+            for (MetroLine line : lines) {
+                tripsByLine.put(line.getLineId(), virtualTimetable(line).toTrips());
+            }
+        } else if (storageMode == StorageMode.PATTERN) {
+            List<LineTimetable> timetables = mongoTemplate.find(
+                Query.query(Criteria.where("_id").in(tripsByLine.keySet())), LineTimetable.class);
+            for (LineTimetable timetable : timetables) {
+                tripsByLine.put(timetable.getLineId(), timetable.toTrips());
+            }
+        } else if (lines.size() == 1) {
+            tripsByLine.put(lines.get(0).getLineId(), findTrips(lines.get(0).getLineId()));
+        } else {
+            List<AggregationOperation> unions = lines.stream().skip(1)
+                .map(line -> (AggregationOperation) UnionWithOperation.unionWith(collectionName(line.getLineId())))
+                .toList();
+            String firstCollection = collectionName(lines.get(0).getLineId());
+            for (Trip trip : mongoTemplate.aggregate(Aggregation.newAggregation(unions), firstCollection, Trip.class)) {
+                List<Trip> trips = tripsByLine.get(trip.getLineId());
+                if (trips != null) trips.add(trip);
+            }
+        }
+        return tripsByLine;
+    }
+
+    // Filtered, keyset-ordered trips of one line. DOCUMENTS pushes the filter down to the indexed
+    // minute fields of trips_<lineId>; the timetable-backed modes filter the expanded trips in memory.
+    public List<Trip> findTrips(String lineId, TripFilter filter) {
+        if (storageMode == StorageMode.DOCUMENTS) {
+            return findTripDocuments(lineId, filter);
+        }
+        List<Trip> matching = new ArrayList<>();
+        LineTimetable timetable = findTimetable(lineId);
+        timetable.forEachTrip(trip -> {
+            if (matches(trip, filter)) matching.add(trip);
+        });
+        matching.sort(TRIP_ORDER);
+        return filter.getLimit() > 0 && matching.size() > filter.getLimit()
+            ? new ArrayList<>(matching.subList(0, filter.getLimit()))
+            : matching;
+    }
+
+    private List<Trip> findTripDocuments(String lineId, TripFilter filter) {
+        List<Trip> result = new ArrayList<>();
+        Integer afterMinute = filter.getAfterDepartureMinute();
+        String afterTripId = filter.getAfterTripId();
+        while (true) {
+            Query query = new Query(tripCriteria(filter, afterMinute, afterTripId))
+                .with(Sort.by(Sort.Direction.ASC, "departureMinute", "_id"));
+            // The station window can only be bounded coarsely in Mongo, so a page may need a refill
+            if (filter.getLimit() > 0) query.limit(filter.getLimit());
+            List<Trip> batch = mongoTemplate.find(query, Trip.class, collectionName(lineId));
+            for (Trip trip : batch) {
+                if (!matches(trip, filter)) continue;
+                result.add(trip);
+                if (filter.getLimit() > 0 && result.size() == filter.getLimit()) return result;
+            }
+            if (filter.getLimit() <= 0 || batch.size() < filter.getLimit()) return result;
+            Trip last = batch.get(batch.size() - 1);
+            afterMinute = last.getDepartureMinute();
+            afterTripId = last.getTripId();
+        }
+    }
+
+    private static Criteria tripCriteria(TripFilter filter, Integer afterMinute, String afterTripId) {
+        List<Criteria> conditions = new ArrayList<>();
+        if (filter.getStationId() != null) {
+            conditions.add(new Criteria().orOperator(
+                Criteria.where("segments.fromStationId").is(filter.getStationId()),
+                Criteria.where("segments.toStationId").is(filter.getStationId())));
+            // A trip can only serve the station while it is running
+            if (filter.getTo() != null) {
+                conditions.add(Criteria.where("departureMinute").lte(LineTimetable.timeToMinutes(filter.getTo())));
+            }
+            if (filter.getFrom() != null) {
+                conditions.add(Criteria.where("arrivalMinute").gte(LineTimetable.timeToMinutes(filter.getFrom())));
+            }
+        } else {
+            if (filter.getFrom() != null) {
+                conditions.add(Criteria.where("departureMinute").gte(LineTimetable.timeToMinutes(filter.getFrom())));
+            }
+            if (filter.getTo() != null) {
+                conditions.add(Criteria.where("departureMinute").lte(LineTimetable.timeToMinutes(filter.getTo())));
+            }
+        }
+        if (filter.getReturnTrip() != null) {
+            conditions.add(Criteria.where("isReturnTrip").is(filter.getReturnTrip()));
+        }
+        if (afterMinute != null) {
+            conditions.add(new Criteria().orOperator(
+                Criteria.where("departureMinute").gt(afterMinute),
+                new Criteria().andOperator(
+                    Criteria.where("departureMinute").is(afterMinute),
+                    Criteria.where("_id").gt(afterTripId == null ? "" : afterTripId))));
+        }
+        return conditions.isEmpty() ? new Criteria() : new Criteria().andOperator(conditions);
+    }
+
+    private static boolean matches(Trip trip, TripFilter filter) {
+        if (filter.getReturnTrip() != null && trip.isReturnTrip() != filter.getReturnTrip()) return false;
+        if (filter.getAfterDepartureMinute() != null && TRIP_ORDER.compare(trip, cursorKey(filter)) <= 0) return false;
+        LocalTime time = filter.getStationId() == null
+            ? trip.getDepartureTime()
+            : timeAtStation(trip, filter.getStationId());
+        if (time == null) return false;
+        if (filter.getFrom() != null && time.isBefore(filter.getFrom())) return false;
+        if (filter.getTo() != null && time.isAfter(filter.getTo())) return false;
+        return true;
+    }
+
+    // Departure from the station, or arrival when it is the trip's last stop
+    public static LocalTime timeAtStation(Trip trip, String stationId) {
+        if (trip.getSegments() == null) return null;
+        for (Trip.TripSegment segment : trip.getSegments()) {
+            if (stationId.equals(segment.getFromStationId())) return segment.getDepartureTime();
+        }
+        for (Trip.TripSegment segment : trip.getSegments()) {
+            if (stationId.equals(segment.getToStationId())) return segment.getArrivalTime();
+        }
+        return null;
+    }
+
+    private static Trip cursorKey(TripFilter filter) {
+        Trip key = new Trip();
+        key.setDepartureTime(LineTimetable.minutesToTime(filter.getAfterDepartureMinute()));
+        key.setTripId(filter.getAfterTripId() == null ? "" : filter.getAfterTripId());
+        return key;
+    }
+
+    // Hands the line's trips to the action one by one. DOCUMENTS reads through a Mongo cursor,
+    // the other modes expand the compact timetable lazily, so memory stays bounded per trip
+    public void forEachTrip(MetroLine line, Consumer<Trip> action) {
+        if (storageMode == StorageMode.DOCUMENTS) {
+            Query query = new Query().cursorBatchSize(Math.max(1, writeBatchSize));
+            try (Stream<Trip> trips = mongoTemplate.stream(query, Trip.class, collectionName(line.getLineId()))) {
+                trips.forEach(action);
+            }
+            return;
+        }
+        LineTimetable timetable = storageMode == StorageMode.VIRTUAL
+            ? virtualTimetable(line)
+            : mongoTemplate.findById(line.getLineId(), LineTimetable.class);
+        if (timetable != null) timetable.forEachTrip(action);
+    }
+
+    public LineTimetable findTimetable(String lineId) {
+        if (storageMode == StorageMode.VIRTUAL) {
+            return metroLineRepo.findById(lineId)
+                .map(this::virtualTimetable)
+                .orElseGet(() -> LineTimetable.fromTrips(lineId, List.of()));
+        }
+        if (storageMode == StorageMode.PATTERN) {
+            LineTimetable timetable = mongoTemplate.findById(lineId, LineTimetable.class);
+            return timetable != null ? timetable : LineTimetable.fromTrips(lineId, List.of());
+        }
+        return LineTimetable.fromTrips(lineId, findTrips(lineId));
+    }
+
+    public void deleteTrips(String lineId) {
+        virtualCache.remove(lineId);
+        mongoTemplate.dropCollection(collectionName(lineId));
+        mongoTemplate.dropCollection(collectionName(lineId) + BACKUP_SUFFIX);
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(lineId)), LineTimetable.class);
+        eventPublisher.publishEvent(new TripsRegeneratedEvent(lineId));
+    }
+
+    // Drop any derived timetable for the line and let listeners know its trips changed
+    public void invalidate(String lineId) {
+        virtualCache.remove(lineId);
+        eventPublisher.publishEvent(new TripsRegeneratedEvent(lineId));
+    }
+
+    public void publishTrips(String lineId, List<Trip> trips) {
+        if (storageMode == StorageMode.PATTERN) {
+            // A single document replace is atomic, so readers never see a partial timetable
+            mongoTemplate.save(LineTimetable.fromTrips(lineId, trips));
+            log.info("Published {} trips to the compressed timetable of {}", trips.size(), lineId);
+        } else if (storageMode == StorageMode.DOCUMENTS) {
+            publishTripDocuments(lineId, trips);
+        }
+        invalidate(lineId);
+    }
+
+    // DOCUMENTS only: copy the line's current trips aside, with their indexes, so that
+    // restoreTrips can bring them back with a rename instead of a regeneration
+    public boolean backupTrips(String lineId) {
+        if (storageMode != StorageMode.DOCUMENTS) return false;
+        String target = collectionName(lineId);
+        if (!mongoTemplate.collectionExists(target)) return false;
+        String backup = target + BACKUP_SUFFIX;
+        mongoTemplate.aggregate(Aggregation.newAggregation(Aggregation.out(backup)), target, Trip.class);
+        ensureTripIndexes(backup);
+        log.info("Backed up trips of {} to {}", lineId, backup);
+        return true;
+    }
+
+    // Swaps the backed up trips back in, replacing the current ones atomically
+    public boolean restoreTrips(String lineId) {
+        if (storageMode != StorageMode.DOCUMENTS) return false;
+        String target = collectionName(lineId);
+        String backup = target + BACKUP_SUFFIX;
+        if (!mongoTemplate.collectionExists(backup)) return false;
+        mongoTemplate.getCollection(backup).renameCollection(
+            new MongoNamespace(mongoTemplate.getDb().getName(), target),
+            new RenameCollectionOptions().dropTarget(true));
+        log.info("Restored trips of {} from {}", lineId, backup);
+        invalidate(lineId);
+        return true;
+    }
+
+    public void dropBackup(String lineId) {
+        mongoTemplate.dropCollection(collectionName(lineId) + BACKUP_SUFFIX);
+    }
+
+    private LineTimetable virtualTimetable(MetroLine line) {
+        Set<String> closedStationIds = suspensionOverlay.getClosedStationIds(line);
+        String signature = tripBuilder.buildInputsSignature(line, TripBuilder.DEFAULT_LAST_DEPARTURE, closedStationIds);
+        CachedTimetable cached = virtualCache.get(line.getLineId());
+        if (cached != null && cached.signature().equals(signature)) {
+            return cached.timetable();
+        }
+        LineTimetable timetable = LineTimetable.fromTrips(line.getLineId(),
+            tripBuilder.buildTrips(line, TripBuilder.DEFAULT_LAST_DEPARTURE, closedStationIds));
+        virtualCache.put(line.getLineId(), new CachedTimetable(signature, timetable));
+        return timetable;
+    }
+
+    // Write the new timetable into a staging collection, then swap it in with an atomic rename.
+    // Readers keep seeing the previous timetable until the rename, never an empty or partial one.
+    private void publishTripDocuments(String lineId, List<Trip> trips) {
+        String target = collectionName(lineId);
+        String staging = target + STAGING_SUFFIX + UUID.randomUUID().toString().substring(0, 8);
+        try {
+            mongoTemplate.createCollection(staging);
+            for (Trip trip : trips) {
+                trip.setDepartureMinute(LineTimetable.timeToMinutes(trip.getDepartureTime()));
+                trip.setArrivalMinute(LineTimetable.timeToMinutes(trip.getArrivalTime()));
+            }
+            int batchSize = Math.max(1, writeBatchSize);
+            for (int from = 0; from < trips.size(); from += batchSize) {
+                List<Trip> batch = trips.subList(from, Math.min(from + batchSize, trips.size()));
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Trip.class, staging)
+                    .insert(batch)
+                    .execute();
+            }
+            // Built on the staging copy so the renamed collection is queryable by index immediately
+            ensureTripIndexes(staging);
+            mongoTemplate.getCollection(staging).renameCollection(
+                new MongoNamespace(mongoTemplate.getDb().getName(), target),
+                new RenameCollectionOptions().dropTarget(true));
+            log.info("Published {} trips to {}", trips.size(), target);
+        } catch (RuntimeException e) {
+            mongoTemplate.dropCollection(staging);
+            throw e;
+        }
+    }
+
+    private void ensureTripIndexes(String collection) {
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        indexOps.ensureIndex(new Index().on("departureMinute", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().on("isReturnTrip", Sort.Direction.ASC)
+            .on("departureMinute", Sort.Direction.ASC).on("_id", Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().on("segments.fromStationId", Sort.Direction.ASC)
+            .on("departureMinute", Sort.Direction.ASC));
+        indexOps.ensureIndex(new Index().on("segments.toStationId", Sort.Direction.ASC)
+            .on("departureMinute", Sort.Direction.ASC));
+    }
+}
@@ -48,7 +48,8 @@ public class SecurityConfiguration {
                                 "/api/stations/search",
                                 "/api/stations/marker/**",
                                 "/api/stations/{stationId}/lines",
-                                "/api/stations/{id}"
+                                "/api/stations/{id}",
+                                "/api/events/stream"
                         ).permitAll()
                         .requestMatchers(
                                 "/api/v1/user/getAll",
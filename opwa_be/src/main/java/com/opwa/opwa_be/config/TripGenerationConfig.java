@@ -0,0 +1,24 @@
+package com.opwa.opwa_be.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class TripGenerationConfig {
+
+    @Bean(name = "tripGenerationExecutor", destroyMethod = "shutdown")
+    public ExecutorService tripGenerationExecutor(
+            @Value("${metro.trips.generation.pool-size:4}") int poolSize) {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        return Executors.newFixedThreadPool(Math.max(1, poolSize), runnable -> {
+            Thread thread = new Thread(runnable, "trip-generation-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.Data;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class JourneyOption {
+    private LocalTime departureTime;
+    private LocalTime arrivalTime;
+    private int durationMinutes;
+    private int transfers;
+    private List<Leg> legs = new ArrayList<>();
+
+    @Data
+    public static class Leg {
+        public enum Mode { RIDE, WALK }
+
+        private Mode mode;
+        private String lineId;
+        private String tripId;
+        private String fromStationId;
+        private String toStationId;
+        private LocalTime departureTime;
+        private LocalTime arrivalTime;
+        private int durationMinutes;
+    }
+}
@@ -128,6 +128,7 @@ public class MetroLineFullDetailsDTO {
         private LocalTime departureTime;
         private LocalTime arrivalTime;
         private int durationMinutes;
+        private boolean suspended;
         // Getters and setters
         public String getFromStationId() { return fromStationId; }
         public void setFromStationId(String fromStationId) { this.fromStationId = fromStationId; }
@@ -139,5 +140,7 @@ public class MetroLineFullDetailsDTO {
         public void setArrivalTime(LocalTime arrivalTime) { this.arrivalTime = arrivalTime; }
         public int getDurationMinutes() { return durationMinutes; }
         public void setDurationMinutes(int durationMinutes) { this.durationMinutes = durationMinutes; }
+        public boolean isSuspended() { return suspended; }
+        public void setSuspended(boolean suspended) { this.suspended = suspended; }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.opwa.opwa_be.dto;
+
+import com.opwa.opwa_be.model.Station;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyStation {
+    private Station station;
+    private double distanceMeters;
+}
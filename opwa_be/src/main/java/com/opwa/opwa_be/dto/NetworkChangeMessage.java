@@ -0,0 +1,27 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Body of a server-sent change event; the SSE event name repeats the type
+@Data
+public class NetworkChangeMessage {
+    public enum Type {
+        LINE_UPDATED,
+        LINE_DELETED,
+        LINES_RELOADED,
+        SUSPENSION_UPDATED,
+        SUSPENSION_DELETED,
+        SUSPENSIONS_RELOADED
+    }
+
+    private Type type;
+    private long version;
+    private String lineId;
+    private String suspensionId;
+    // Stations the change touches, including ones it removed; null when that is not known
+    private List<String> stationIds;
+    // The saved MetroLine or Suspension, null for deletes and reloads
+    private Object data;
+}
@@ -0,0 +1,16 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileEntry {
+    private LocalTime departureTime;
+    private LocalTime arrivalTime;
+    private int durationMinutes;
+}
@@ -0,0 +1,42 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// What-if result of one or more drafted suspensions against the generated timetables
+@Data
+public class SuspensionImpact {
+    private int affectedTripCount;
+    private int brokenPairCount;
+    private int closedEndpointPairCount;
+    private int unreachablePairCount;
+    private long totalExtraMinutes;
+    private long computeMillis;
+    private List<LineImpact> lines = new ArrayList<>();
+
+    @Data
+    public static class LineImpact {
+        private String lineId;
+        private List<String> closedStationIds;
+        private int totalTripCount;
+        private int affectedTripCount;
+        private List<String> affectedTripIds = new ArrayList<>();
+        private List<PairImpact> brokenPairs = new ArrayList<>();
+        private List<PairImpact> closedEndpointPairs = new ArrayList<>();
+    }
+
+    // A station pair the line rode directly through a closed station. alternativeMinutes is
+    // the best remaining in-vehicle time over the rest of the network, null when unreachable;
+    // both times only count stops served inside the draft's window. Pairs that start or end
+    // at a closed station carry the baseline only.
+    @Data
+    public static class PairImpact {
+        private String fromStationId;
+        private String toStationId;
+        private int baselineMinutes;
+        private Integer alternativeMinutes;
+        private Integer extraMinutes;
+    }
+}
@@ -0,0 +1,16 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.Data;
+
+import java.time.LocalTime;
+import java.util.List;
+
+// A drafted suspension to assess; no affected stations means the whole line,
+// and a missing from/to means the whole service day (to before from wraps past midnight)
+@Data
+public class SuspensionImpactRequest {
+    private String lineId;
+    private List<String> affectedStationIds;
+    private LocalTime from;
+    private LocalTime to;
+}
@@ -0,0 +1,15 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Row-major matrices indexed by position in stationIds; -1 marks unreachable pairs
+@Data
+public class TravelTimeMatrixDTO {
+    private List<String> stationIds;
+    private int[] minutes;
+    private int[] hops;
+    private LocalDateTime computedAt;
+}
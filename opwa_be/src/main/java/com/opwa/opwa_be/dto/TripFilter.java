@@ -0,0 +1,20 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.Data;
+
+import java.time.LocalTime;
+
+// Trip listing filter. With a stationId the time window applies to the time the trip
+// serves that station, otherwise to the trip's departure. Results are ordered by
+// (departure time, tripId) and start strictly after the afterDepartureMinute/afterTripId key.
+@Data
+public class TripFilter {
+    private String stationId;
+    private LocalTime from;
+    private LocalTime to;
+    private Boolean returnTrip;
+    private Integer afterDepartureMinute;
+    private String afterTripId;
+    // 0 means no limit
+    private int limit;
+}
@@ -0,0 +1,12 @@
+package com.opwa.opwa_be.dto;
+
+import lombok.Data;
+
+@Data
+public class TripGenerationReport {
+    private String lineId;
+    private int tripCount;
+    private long durationMillis;
+    private boolean success;
+    private String error;
+}
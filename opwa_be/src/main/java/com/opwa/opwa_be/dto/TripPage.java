@@ -0,0 +1,18 @@
+package com.opwa.opwa_be.dto;
+
+import com.opwa.opwa_be.model.Trip;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripPage {
+    private List<Trip> trips;
+    // Pass back as cursor to get the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,35 @@
+package com.opwa.opwa_be.event;
+
+import com.opwa.opwa_be.model.MetroLine;
+
+// Published after a metro line write. line is null when it was deleted;
+// lineId is null when the whole metro_lines collection was rewritten.
+public class MetroLineChangedEvent {
+    private final String lineId;
+    private final MetroLine line;
+
+    public MetroLineChangedEvent(String lineId, MetroLine line) {
+        this.lineId = lineId;
+        this.line = line;
+    }
+
+    public static MetroLineChangedEvent allLines() {
+        return new MetroLineChangedEvent(null, null);
+    }
+
+    public String getLineId() {
+        return lineId;
+    }
+
+    public MetroLine getLine() {
+        return line;
+    }
+
+    public boolean affectsAllLines() {
+        return lineId == null;
+    }
+
+    public boolean isDeleted() {
+        return lineId != null && line == null;
+    }
+}
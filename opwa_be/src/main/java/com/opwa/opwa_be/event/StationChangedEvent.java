@@ -0,0 +1,35 @@
+package com.opwa.opwa_be.event;
+
+import com.opwa.opwa_be.model.Station;
+
+// Published after a station write. station is null when it was deleted;
+// stationId is null when the whole stations collection was rewritten.
+public class StationChangedEvent {
+    private final String stationId;
+    private final Station station;
+
+    public StationChangedEvent(String stationId, Station station) {
+        this.stationId = stationId;
+        this.station = station;
+    }
+
+    public static StationChangedEvent allStations() {
+        return new StationChangedEvent(null, null);
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public Station getStation() {
+        return station;
+    }
+
+    public boolean affectsAllStations() {
+        return stationId == null;
+    }
+
+    public boolean isDeleted() {
+        return stationId != null && station == null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.opwa.opwa_be.event;
+
+import com.opwa.opwa_be.model.Suspension;
+
+// Published after a suspension write. suspension is null when it was deleted;
+// suspensionId is null for bulk deletes, scoped to metroLineId unless that is null too.
+public class SuspensionChangedEvent {
+    private final String suspensionId;
+    private final String metroLineId;
+    private final Suspension suspension;
+
+    public SuspensionChangedEvent(String suspensionId, String metroLineId, Suspension suspension) {
+        this.suspensionId = suspensionId;
+        this.metroLineId = metroLineId;
+        this.suspension = suspension;
+    }
+
+    public static SuspensionChangedEvent saved(Suspension suspension) {
+        return new SuspensionChangedEvent(suspension.getId(), suspension.getMetroLineId(), suspension);
+    }
+
+    public static SuspensionChangedEvent deleted(Suspension suspension) {
+        return new SuspensionChangedEvent(suspension.getId(), suspension.getMetroLineId(), null);
+    }
+
+    public static SuspensionChangedEvent allForLine(String metroLineId) {
+        return new SuspensionChangedEvent(null, metroLineId, null);
+    }
+
+    public static SuspensionChangedEvent allSuspensions() {
+        return new SuspensionChangedEvent(null, null, null);
+    }
+
+    public String getSuspensionId() {
+        return suspensionId;
+    }
+
+    public String getMetroLineId() {
+        return metroLineId;
+    }
+
+    public Suspension getSuspension() {
+        return suspension;
+    }
+
+    public boolean isBulk() {
+        return suspensionId == null;
+    }
+
+    public boolean isDeleted() {
+        return suspensionId != null && suspension == null;
+    }
+}
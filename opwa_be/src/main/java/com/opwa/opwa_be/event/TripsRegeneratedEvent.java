@@ -0,0 +1,18 @@
+package com.opwa.opwa_be.event;
+
+// Published whenever the stored (or derived) trips of a line change; lineId is null when every line changed
+public class TripsRegeneratedEvent {
+    private final String lineId;
+
+    public TripsRegeneratedEvent(String lineId) {
+        this.lineId = lineId;
+    }
+
+    public String getLineId() {
+        return lineId;
+    }
+
+    public boolean affectsAllLines() {
+        return lineId == null;
+    }
+}
@@ -0,0 +1,129 @@
+package com.opwa.opwa_be.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.Map;
+
+// Compressed timetable of a line: one stop pattern per direction plus the departure minutes that run it
+@Document(collection = "line_timetables")
+@Data
+public class LineTimetable {
+    @Id
+    private String lineId;
+    private List<StopPattern> patterns;
+    private LocalDateTime updatedAt;
+
+    @Data
+    public static class StopPattern {
+        private boolean isReturnTrip;
+        private List<String> stationIds;
+        // Minutes from the trip's first departure until it reaches each stop
+        private int[] stopOffsets;
+        // Departure of each trip from the first stop, in minutes after midnight, ascending
+        private int[] departureMinutes;
+
+        public int tripCount() {
+            return departureMinutes == null ? 0 : departureMinutes.length;
+        }
+
+        public Trip toTrip(String lineId, int tripIndex) {
+            LocalTime departure = minutesToTime(departureMinutes[tripIndex]);
+            Trip trip = new Trip();
+            trip.setLineId(lineId);
+            trip.setTripId(Trip.buildTripId(lineId, departure, isReturnTrip));
+            trip.setDepartureTime(departure);
+            trip.setReturnTrip(isReturnTrip);
+
+            List<Trip.TripSegment> segments = new ArrayList<>(stationIds.size() - 1);
+            for (int i = 0; i < stationIds.size() - 1; i++) {
+                Trip.TripSegment segment = new Trip.TripSegment();
+                segment.setFromStationId(stationIds.get(i));
+                segment.setToStationId(stationIds.get(i + 1));
+                segment.setDepartureTime(minutesToTime(departureMinutes[tripIndex] + stopOffsets[i]));
+                segment.setArrivalTime(minutesToTime(departureMinutes[tripIndex] + stopOffsets[i + 1]));
+                segment.setDurationMinutes(stopOffsets[i + 1] - stopOffsets[i]);
+                segments.add(segment);
+            }
+            trip.setSegments(segments);
+            trip.setArrivalTime(minutesToTime(departureMinutes[tripIndex] + stopOffsets[stopOffsets.length - 1]));
+            return trip;
+        }
+    }
+
+    public List<Trip> toTrips() {
+        List<Trip> trips = new ArrayList<>();
+        forEachTrip(trips::add);
+        return trips;
+    }
+
+    // Expands one trip at a time, so callers that stream do not hold the whole list
+    public void forEachTrip(Consumer<Trip> action) {
+        if (patterns == null) return;
+        for (StopPattern pattern : patterns) {
+            for (int i = 0; i < pattern.tripCount(); i++) {
+                action.accept(pattern.toTrip(lineId, i));
+            }
+        }
+    }
+
+    // Group trips that share direction, stop sequence and running times into one pattern each
+    public static LineTimetable fromTrips(String lineId, List<Trip> trips) {
+        Map<String, StopPattern> patternsByKey = new LinkedHashMap<>();
+        Map<String, List<Integer>> departuresByKey = new LinkedHashMap<>();
+        for (Trip trip : trips) {
+            List<Trip.TripSegment> segments = trip.getSegments();
+            if (segments == null || segments.isEmpty()) continue;
+
+            int start = timeToMinutes(trip.getDepartureTime());
+            List<String> stationIds = new ArrayList<>(segments.size() + 1);
+            int[] offsets = new int[segments.size() + 1];
+            stationIds.add(segments.get(0).getFromStationId());
+            for (int i = 0; i < segments.size(); i++) {
+                stationIds.add(segments.get(i).getToStationId());
+                offsets[i + 1] = offsets[i] + segments.get(i).getDurationMinutes();
+            }
+
+            String key = trip.isReturnTrip() + "|" + stationIds + "|" + Arrays.toString(offsets);
+            patternsByKey.computeIfAbsent(key, k -> {
+                StopPattern pattern = new StopPattern();
+                pattern.setReturnTrip(trip.isReturnTrip());
+                pattern.setStationIds(stationIds);
+                pattern.setStopOffsets(offsets);
+                return pattern;
+            });
+            departuresByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(start);
+        }
+
+        List<StopPattern> patterns = new ArrayList<>();
+        patternsByKey.forEach((key, pattern) -> {
+            pattern.setDepartureMinutes(departuresByKey.get(key).stream()
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray());
+            patterns.add(pattern);
+        });
+
+        LineTimetable timetable = new LineTimetable();
+        timetable.setLineId(lineId);
+        timetable.setPatterns(patterns);
+        timetable.setUpdatedAt(LocalDateTime.now());
+        return timetable;
+    }
+
+    public static int timeToMinutes(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    public static LocalTime minutesToTime(int minutes) {
+        return LocalTime.of((minutes / 60) % 24, minutes % 60);
+    }
+}
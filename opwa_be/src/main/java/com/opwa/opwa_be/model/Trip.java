@@ -1,7 +1,10 @@
 package com.opwa.opwa_be.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalTime;
@@ -17,6 +20,18 @@ public class Trip {
     private LocalTime arrivalTime;
     private List<TripSegment> segments;
     private boolean isReturnTrip;
+    // Minutes since midnight, stored for indexed range queries and keyset paging
+    @JsonIgnore
+    private int departureMinute;
+    @JsonIgnore
+    private int arrivalMinute;
+
+    public static String buildTripId(String lineId, LocalTime time, boolean isReturnTrip) {
+        return String.format("%s-%s-%s",
+            lineId,
+            time.toString().replace(":", ""),
+            isReturnTrip ? "R" : "F");
+    }
     
     // Inner class for trip segments
     @Data
@@ -26,5 +41,8 @@ public class Trip {
         private LocalTime departureTime;
         private LocalTime arrivalTime;
         private int durationMinutes;
+        // Set at read time from the active suspensions, never stored
+        @Transient
+        private boolean suspended;
     }
 }
\ No newline at end of file
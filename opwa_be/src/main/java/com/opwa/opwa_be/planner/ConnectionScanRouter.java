@@ -0,0 +1,188 @@
+package com.opwa.opwa_be.planner;
+
+import com.opwa.opwa_be.dto.ProfileEntry;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Trip;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Connection Scan Algorithm over a departure-sorted array of elementary connections (one per TripSegment).
+// Profile queries scan the array backwards once and return every Pareto-optimal (departure, arrival) pair.
+public final class ConnectionScanRouter {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final TransitNetwork network;
+    private final int[] departureStations;
+    private final int[] arrivalStations;
+    private final int[] departureMinutes;
+    private final int[] arrivalMinutes;
+    private final int[] tripOrdinals;
+    private final int tripCount;
+
+    private ConnectionScanRouter(TransitNetwork network, int[] departureStations, int[] arrivalStations,
+                                 int[] departureMinutes, int[] arrivalMinutes, int[] tripOrdinals, int tripCount) {
+        this.network = network;
+        this.departureStations = departureStations;
+        this.arrivalStations = arrivalStations;
+        this.departureMinutes = departureMinutes;
+        this.arrivalMinutes = arrivalMinutes;
+        this.tripOrdinals = tripOrdinals;
+        this.tripCount = tripCount;
+    }
+
+    // Station ordinals and walking transfers come from the network; connections come from the trips themselves
+    public static ConnectionScanRouter build(List<Trip> trips, TransitNetwork network) {
+        List<int[]> connections = new ArrayList<>();
+        Map<String, Integer> tripOrdinals = new HashMap<>();
+        for (Trip trip : trips) {
+            if (trip.getSegments() == null) continue;
+            int tripOrdinal = tripOrdinals.computeIfAbsent(trip.getLineId() + "/" + trip.getTripId(), k -> tripOrdinals.size());
+            for (Trip.TripSegment segment : trip.getSegments()) {
+                int from = network.stationOrdinal(segment.getFromStationId());
+                int to = network.stationOrdinal(segment.getToStationId());
+                if (from < 0 || to < 0) continue;
+                connections.add(new int[] {
+                    from, to,
+                    LineTimetable.timeToMinutes(segment.getDepartureTime()),
+                    LineTimetable.timeToMinutes(segment.getArrivalTime()),
+                    tripOrdinal
+                });
+            }
+        }
+        connections.sort(Comparator.<int[]>comparingInt(c -> c[2]).thenComparingInt(c -> c[3]));
+
+        int size = connections.size();
+        int[] departureStations = new int[size];
+        int[] arrivalStations = new int[size];
+        int[] departureMinutes = new int[size];
+        int[] arrivalMinutes = new int[size];
+        int[] connectionTrips = new int[size];
+        for (int i = 0; i < size; i++) {
+            int[] c = connections.get(i);
+            departureStations[i] = c[0];
+            arrivalStations[i] = c[1];
+            departureMinutes[i] = c[2];
+            arrivalMinutes[i] = c[3];
+            connectionTrips[i] = c[4];
+        }
+        return new ConnectionScanRouter(network, departureStations, arrivalStations,
+            departureMinutes, arrivalMinutes, connectionTrips, tripOrdinals.size());
+    }
+
+    public int connectionCount() {
+        return departureMinutes.length;
+    }
+
+    public List<ProfileEntry> profile(String fromStationId, String toStationId, int windowStart, int windowEnd) {
+        int source = network.stationOrdinal(fromStationId);
+        int target = network.stationOrdinal(toStationId);
+        if (source < 0 || target < 0 || source == target) return List.of();
+
+        int stationCount = network.stationCount();
+        int[] walkToTarget = new int[stationCount];
+        Arrays.fill(walkToTarget, INFINITY);
+        walkToTarget[target] = 0;
+        for (int slot = network.transferStart(target); slot < network.transferEnd(target); slot++) {
+            walkToTarget[network.transferTarget(slot)] = network.transferMinutes(slot);
+        }
+
+        int[] tripArrival = new int[tripCount];
+        Arrays.fill(tripArrival, INFINITY);
+        StationProfile[] profiles = new StationProfile[stationCount];
+
+        for (int i = departureMinutes.length - 1; i >= 0 && departureMinutes[i] >= windowStart; i--) {
+            int from = departureStations[i];
+            int to = arrivalStations[i];
+            int arriveAt = arrivalMinutes[i];
+
+            int best = walkToTarget[to] == INFINITY ? INFINITY : arriveAt + walkToTarget[to];
+            best = Math.min(best, tripArrival[tripOrdinals[i]]);
+            best = Math.min(best, evaluate(profiles[to], arriveAt));
+            for (int slot = network.transferStart(to); slot < network.transferEnd(to); slot++) {
+                best = Math.min(best, evaluate(profiles[network.transferTarget(slot)], arriveAt + network.transferMinutes(slot)));
+            }
+            if (best == INFINITY) continue;
+
+            tripArrival[tripOrdinals[i]] = Math.min(tripArrival[tripOrdinals[i]], best);
+            if (profiles[from] == null) profiles[from] = new StationProfile();
+            profiles[from].offer(departureMinutes[i], best);
+        }
+
+        // Journeys may also start with a walk from the origin to a nearby station
+        List<int[]> candidates = new ArrayList<>();
+        collect(profiles[source], 0, windowStart, windowEnd, candidates);
+        for (int slot = network.transferStart(source); slot < network.transferEnd(source); slot++) {
+            collect(profiles[network.transferTarget(slot)], network.transferMinutes(slot), windowStart, windowEnd, candidates);
+        }
+        candidates.sort(Comparator.<int[]>comparingInt(c -> c[0]).reversed().thenComparingInt(c -> c[1]));
+
+        List<ProfileEntry> result = new ArrayList<>();
+        int bestArrival = INFINITY;
+        for (int[] candidate : candidates) {
+            if (candidate[1] < bestArrival) {
+                bestArrival = candidate[1];
+                result.add(new ProfileEntry(LineTimetable.minutesToTime(candidate[0]),
+                    LineTimetable.minutesToTime(candidate[1]), candidate[1] - candidate[0]));
+            }
+        }
+        result.sort(Comparator.comparing(ProfileEntry::getDepartureTime));
+        return result;
+    }
+
+    private static void collect(StationProfile profile, int walkMinutes, int windowStart, int windowEnd, List<int[]> out) {
+        if (profile == null) return;
+        for (int i = 0; i < profile.size; i++) {
+            int departAt = profile.departures[i] - walkMinutes;
+            if (departAt >= windowStart && departAt <= windowEnd) {
+                out.add(new int[] {departAt, profile.arrivals[i]});
+            }
+        }
+    }
+
+    private static int evaluate(StationProfile profile, int readyAt) {
+        return profile == null ? INFINITY : profile.earliestArrival(readyAt);
+    }
+
+    // Pareto front of (departure, arrival) pairs, appended in decreasing departure order
+    private static final class StationProfile {
+        private int[] departures = new int[8];
+        private int[] arrivals = new int[8];
+        private int size;
+
+        void offer(int departure, int arrival) {
+            if (size > 0 && arrivals[size - 1] <= arrival) return;
+            if (size > 0 && departures[size - 1] == departure) {
+                arrivals[size - 1] = arrival;
+                return;
+            }
+            if (size == departures.length) {
+                departures = Arrays.copyOf(departures, size * 2);
+                arrivals = Arrays.copyOf(arrivals, size * 2);
+            }
+            departures[size] = departure;
+            arrivals[size] = arrival;
+            size++;
+        }
+
+        // Arrival of the latest-added entry that still departs at or after readyAt
+        int earliestArrival(int readyAt) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (departures[mid] >= readyAt) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo == 0 ? INFINITY : arrivals[lo - 1];
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.opwa.opwa_be.planner;
+
+import com.opwa.opwa_be.dto.JourneyOption;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Trip;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Round-based public transit routing (RAPTOR). Round k finds the earliest arrivals using k rides;
+// every round that improves the destination adds one option to the arrival/transfers Pareto set.
+public final class RaptorRouter {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final byte NONE = 0;
+    private static final byte RIDE = 1;
+    private static final byte WALK = 2;
+
+    private final TransitNetwork network;
+
+    public RaptorRouter(TransitNetwork network) {
+        this.network = network;
+    }
+
+    public List<JourneyOption> route(String fromStationId, String toStationId, int departureMinute, int maxTransfers) {
+        int source = network.stationOrdinal(fromStationId);
+        int target = network.stationOrdinal(toStationId);
+        if (source < 0 || target < 0 || source == target) return List.of();
+
+        int stationCount = network.stationCount();
+        int rounds = maxTransfers + 1;
+        int[][] arrival = new int[rounds + 1][stationCount];
+        byte[][] parentKind = new byte[rounds + 1][stationCount];
+        int[][] parentStation = new int[rounds + 1][stationCount];
+        int[][] parentRoute = new int[rounds + 1][stationCount];
+        int[][] parentTrip = new int[rounds + 1][stationCount];
+        int[][] parentBoardPosition = new int[rounds + 1][stationCount];
+        int[] best = new int[stationCount];
+        Arrays.fill(arrival[0], INFINITY);
+        Arrays.fill(best, INFINITY);
+
+        boolean[] marked = new boolean[stationCount];
+        arrival[0][source] = departureMinute;
+        best[source] = departureMinute;
+        marked[source] = true;
+        relaxTransfers(0, arrival, best, parentKind, parentStation, marked, target);
+
+        List<JourneyOption> options = new ArrayList<>();
+        int bestAtTarget = INFINITY;
+        if (arrival[0][target] != INFINITY) {
+            // Destination is within walking distance of the origin
+            bestAtTarget = arrival[0][target];
+            options.add(reconstruct(0, source, target, arrival, parentKind, parentStation,
+                parentRoute, parentTrip, parentBoardPosition));
+        }
+        int[] routeFirstPosition = new int[network.routeCount()];
+        int[] queuedRoutes = new int[network.routeCount()];
+
+        for (int k = 1; k <= rounds; k++) {
+            // Labels carry over from the previous round unless improved
+            System.arraycopy(arrival[k - 1], 0, arrival[k], 0, stationCount);
+
+            Arrays.fill(routeFirstPosition, -1);
+            int queued = 0;
+            for (int s = 0; s < stationCount; s++) {
+                if (!marked[s]) continue;
+                marked[s] = false;
+                for (int slot = network.stationRouteStart(s); slot < network.stationRouteEnd(s); slot++) {
+                    int route = network.stationRoute(slot);
+                    int position = network.stationRoutePosition(slot);
+                    if (routeFirstPosition[route] == -1) {
+                        queuedRoutes[queued++] = route;
+                        routeFirstPosition[route] = position;
+                    } else if (position < routeFirstPosition[route]) {
+                        routeFirstPosition[route] = position;
+                    }
+                }
+            }
+            if (queued == 0) break;
+
+            boolean improved = false;
+            for (int q = 0; q < queued; q++) {
+                int route = queuedRoutes[q];
+                int trip = -1;
+                int boardPosition = -1;
+                for (int position = routeFirstPosition[route]; position < network.routeStopCount(route); position++) {
+                    int station = network.routeStop(route, position);
+                    int offset = network.routeStopOffset(route, position);
+                    if (trip != -1) {
+                        int arriveAt = network.tripDeparture(route, trip) + offset;
+                        if (arriveAt < Math.min(best[station], best[target])) {
+                            arrival[k][station] = arriveAt;
+                            best[station] = arriveAt;
+                            parentKind[k][station] = RIDE;
+                            parentRoute[k][station] = route;
+                            parentTrip[k][station] = trip;
+                            parentBoardPosition[k][station] = boardPosition;
+                            parentStation[k][station] = network.routeStop(route, boardPosition);
+                            marked[station] = true;
+                            improved = true;
+                        }
+                    }
+                    int ready = arrival[k - 1][station];
+                    if (ready != INFINITY && (trip == -1 || ready <= network.tripDeparture(route, trip) + offset)) {
+                        int earlier = network.earliestTrip(route, ready - offset);
+                        if (earlier != -1 && (trip == -1 || earlier < trip)) {
+                            trip = earlier;
+                            boardPosition = position;
+                        }
+                    }
+                }
+            }
+            if (!improved) break;
+            relaxTransfers(k, arrival, best, parentKind, parentStation, marked, target);
+
+            if (arrival[k][target] < bestAtTarget) {
+                bestAtTarget = arrival[k][target];
+                options.add(reconstruct(k, source, target, arrival, parentKind, parentStation,
+                    parentRoute, parentTrip, parentBoardPosition));
+            }
+        }
+        return options;
+    }
+
+    private void relaxTransfers(int k, int[][] arrival, int[] best, byte[][] parentKind, int[][] parentStation,
+                                boolean[] marked, int target) {
+        int stationCount = network.stationCount();
+        boolean[] fromStations = Arrays.copyOf(marked, stationCount);
+        for (int s = 0; s < stationCount; s++) {
+            if (!fromStations[s]) continue;
+            for (int slot = network.transferStart(s); slot < network.transferEnd(s); slot++) {
+                int to = network.transferTarget(slot);
+                int arriveAt = arrival[k][s] + network.transferMinutes(slot);
+                if (arriveAt < Math.min(best[to], best[target])) {
+                    arrival[k][to] = arriveAt;
+                    best[to] = arriveAt;
+                    parentKind[k][to] = WALK;
+                    parentStation[k][to] = s;
+                    marked[to] = true;
+                }
+            }
+        }
+    }
+
+    private JourneyOption reconstruct(int round, int source, int target, int[][] arrival, byte[][] parentKind,
+                                      int[][] parentStation, int[][] parentRoute, int[][] parentTrip,
+                                      int[][] parentBoardPosition) {
+        List<JourneyOption.Leg> legs = new ArrayList<>();
+        int station = target;
+        int k = round;
+        while (!(station == source && k == 0)) {
+            byte kind = parentKind[k][station];
+            if (kind == NONE) {
+                // Label was carried over from an earlier round
+                if (k == 0) break;
+                k--;
+                continue;
+            }
+            if (kind == WALK) {
+                int from = parentStation[k][station];
+                JourneyOption.Leg leg = new JourneyOption.Leg();
+                leg.setMode(JourneyOption.Leg.Mode.WALK);
+                leg.setFromStationId(network.stationId(from));
+                leg.setToStationId(network.stationId(station));
+                leg.setDepartureTime(LineTimetable.minutesToTime(arrival[k][from]));
+                leg.setArrivalTime(LineTimetable.minutesToTime(arrival[k][station]));
+                leg.setDurationMinutes(arrival[k][station] - arrival[k][from]);
+                legs.add(leg);
+                station = from;
+            } else {
+                int route = parentRoute[k][station];
+                int trip = parentTrip[k][station];
+                int boardPosition = parentBoardPosition[k][station];
+                int tripStart = network.tripDeparture(route, trip);
+                int departAt = tripStart + network.routeStopOffset(route, boardPosition);
+                LineTimetable.StopPattern pattern = network.routePattern(route);
+
+                JourneyOption.Leg leg = new JourneyOption.Leg();
+                leg.setMode(JourneyOption.Leg.Mode.RIDE);
+                leg.setLineId(network.routeLineId(route));
+                leg.setTripId(Trip.buildTripId(network.routeLineId(route),
+                    LineTimetable.minutesToTime(tripStart), pattern.isReturnTrip()));
+                leg.setFromStationId(network.stationId(parentStation[k][station]));
+                leg.setToStationId(network.stationId(station));
+                leg.setDepartureTime(LineTimetable.minutesToTime(departAt));
+                leg.setArrivalTime(LineTimetable.minutesToTime(arrival[k][station]));
+                leg.setDurationMinutes(arrival[k][station] - departAt);
+                legs.add(leg);
+                station = parentStation[k][station];
+                k--;
+            }
+        }
+        Collections.reverse(legs);
+
+        JourneyOption option = new JourneyOption();
+        option.setLegs(legs);
+        option.setDepartureTime(legs.get(0).getDepartureTime());
+        option.setArrivalTime(legs.get(legs.size() - 1).getArrivalTime());
+        int departAt = LineTimetable.timeToMinutes(legs.get(0).getDepartureTime());
+        option.setDurationMinutes(arrival[round][target] - departAt);
+        int rides = (int) legs.stream().filter(l -> l.getMode() == JourneyOption.Leg.Mode.RIDE).count();
+        option.setTransfers(Math.max(0, rides - 1));
+        return option;
+    }
+}
@@ -0,0 +1,210 @@
+package com.opwa.opwa_be.planner;
+
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Station;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable, array-backed snapshot of the timetabled network used by the journey planners.
+// Every stop pattern of every line is a route; stations are addressed by a dense ordinal.
+public final class TransitNetwork {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000;
+    private static final double WALKING_METERS_PER_MINUTE = 80;
+
+    private final String[] stationIds;
+    private final Map<String, Integer> stationOrdinals;
+
+    private final String[] routeLineIds;
+    private final LineTimetable.StopPattern[] routePatterns;
+    // Stops of route r are routeStops[routeStopStart[r] .. routeStopStart[r + 1])
+    private final int[] routeStopStart;
+    private final int[] routeStops;
+    private final int[] routeStopOffsets;
+    // Trips of route r depart from its first stop at tripDepartures[routeTripStart[r] .. routeTripStart[r + 1])
+    private final int[] routeTripStart;
+    private final int[] tripDepartures;
+
+    // Routes serving station s and the stop position on each: [stationRouteStart[s] .. stationRouteStart[s + 1])
+    private final int[] stationRouteStart;
+    private final int[] stationRoutes;
+    private final int[] stationRoutePositions;
+
+    // Walking transfers leaving station s: [transferStart[s] .. transferStart[s + 1])
+    private final int[] transferStart;
+    private final int[] transferTargets;
+    private final int[] transferMinutes;
+
+    private TransitNetwork(String[] stationIds, Map<String, Integer> stationOrdinals,
+                           String[] routeLineIds, LineTimetable.StopPattern[] routePatterns,
+                           int[] routeStopStart, int[] routeStops, int[] routeStopOffsets,
+                           int[] routeTripStart, int[] tripDepartures,
+                           int[] stationRouteStart, int[] stationRoutes, int[] stationRoutePositions,
+                           int[] transferStart, int[] transferTargets, int[] transferMinutes) {
+        this.stationIds = stationIds;
+        this.stationOrdinals = stationOrdinals;
+        this.routeLineIds = routeLineIds;
+        this.routePatterns = routePatterns;
+        this.routeStopStart = routeStopStart;
+        this.routeStops = routeStops;
+        this.routeStopOffsets = routeStopOffsets;
+        this.routeTripStart = routeTripStart;
+        this.tripDepartures = tripDepartures;
+        this.stationRouteStart = stationRouteStart;
+        this.stationRoutes = stationRoutes;
+        this.stationRoutePositions = stationRoutePositions;
+        this.transferStart = transferStart;
+        this.transferTargets = transferTargets;
+        this.transferMinutes = transferMinutes;
+    }
+
+    public static TransitNetwork build(List<LineTimetable> timetables, List<Station> stations,
+                                       double transferRadiusMeters, int minTransferMinutes) {
+        Map<String, Integer> ordinals = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        for (Station station : stations) {
+            ordinals.computeIfAbsent(station.getStationId(), id -> { ids.add(id); return ids.size() - 1; });
+        }
+
+        List<String> lineIds = new ArrayList<>();
+        List<LineTimetable.StopPattern> patterns = new ArrayList<>();
+        for (LineTimetable timetable : timetables) {
+            if (timetable.getPatterns() == null) continue;
+            for (LineTimetable.StopPattern pattern : timetable.getPatterns()) {
+                if (pattern.getStationIds().size() < 2 || pattern.tripCount() == 0) continue;
+                lineIds.add(timetable.getLineId());
+                patterns.add(pattern);
+                for (String stationId : pattern.getStationIds()) {
+                    ordinals.computeIfAbsent(stationId, id -> { ids.add(id); return ids.size() - 1; });
+                }
+            }
+        }
+
+        int routeCount = patterns.size();
+        int[] routeStopStart = new int[routeCount + 1];
+        int[] routeTripStart = new int[routeCount + 1];
+        for (int r = 0; r < routeCount; r++) {
+            routeStopStart[r + 1] = routeStopStart[r] + patterns.get(r).getStationIds().size();
+            routeTripStart[r + 1] = routeTripStart[r] + patterns.get(r).tripCount();
+        }
+        int[] routeStops = new int[routeStopStart[routeCount]];
+        int[] routeStopOffsets = new int[routeStopStart[routeCount]];
+        int[] tripDepartures = new int[routeTripStart[routeCount]];
+
+        int stationCount = ids.size();
+        int[] stationRouteCount = new int[stationCount];
+        for (int r = 0; r < routeCount; r++) {
+            LineTimetable.StopPattern pattern = patterns.get(r);
+            for (int i = 0; i < pattern.getStationIds().size(); i++) {
+                int station = ordinals.get(pattern.getStationIds().get(i));
+                routeStops[routeStopStart[r] + i] = station;
+                routeStopOffsets[routeStopStart[r] + i] = pattern.getStopOffsets()[i];
+                stationRouteCount[station]++;
+            }
+            System.arraycopy(pattern.getDepartureMinutes(), 0, tripDepartures, routeTripStart[r], pattern.tripCount());
+        }
+
+        int[] stationRouteStart = prefixSums(stationRouteCount);
+        int[] stationRoutes = new int[stationRouteStart[stationCount]];
+        int[] stationRoutePositions = new int[stationRouteStart[stationCount]];
+        int[] fill = new int[stationCount];
+        for (int r = 0; r < routeCount; r++) {
+            for (int i = routeStopStart[r]; i < routeStopStart[r + 1]; i++) {
+                int station = routeStops[i];
+                int slot = stationRouteStart[station] + fill[station]++;
+                stationRoutes[slot] = r;
+                stationRoutePositions[slot] = i - routeStopStart[r];
+            }
+        }
+
+        // Walking transfers between distinct stations close enough to change on foot
+        List<List<int[]>> walks = new ArrayList<>();
+        for (int s = 0; s < stationCount; s++) walks.add(new ArrayList<>());
+        for (int a = 0; a < stations.size(); a++) {
+            for (int b = a + 1; b < stations.size(); b++) {
+                Station from = stations.get(a);
+                Station to = stations.get(b);
+                double meters = distanceMeters(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+                if (meters > transferRadiusMeters) continue;
+                int minutes = Math.max(minTransferMinutes, (int) Math.ceil(meters / WALKING_METERS_PER_MINUTE));
+                int fromOrdinal = ordinals.get(from.getStationId());
+                int toOrdinal = ordinals.get(to.getStationId());
+                walks.get(fromOrdinal).add(new int[] {toOrdinal, minutes});
+                walks.get(toOrdinal).add(new int[] {fromOrdinal, minutes});
+            }
+        }
+        int[] walkCount = new int[stationCount];
+        for (int s = 0; s < stationCount; s++) walkCount[s] = walks.get(s).size();
+        int[] transferStart = prefixSums(walkCount);
+        int[] transferTargets = new int[transferStart[stationCount]];
+        int[] transferMinutes = new int[transferStart[stationCount]];
+        for (int s = 0; s < stationCount; s++) {
+            for (int i = 0; i < walks.get(s).size(); i++) {
+                transferTargets[transferStart[s] + i] = walks.get(s).get(i)[0];
+                transferMinutes[transferStart[s] + i] = walks.get(s).get(i)[1];
+            }
+        }
+
+        return new TransitNetwork(ids.toArray(new String[0]), ordinals,
+            lineIds.toArray(new String[0]), patterns.toArray(new LineTimetable.StopPattern[0]),
+            routeStopStart, routeStops, routeStopOffsets, routeTripStart, tripDepartures,
+            stationRouteStart, stationRoutes, stationRoutePositions,
+            transferStart, transferTargets, transferMinutes);
+    }
+
+    private static int[] prefixSums(int[] counts) {
+        int[] start = new int[counts.length + 1];
+        for (int i = 0; i < counts.length; i++) start[i + 1] = start[i] + counts[i];
+        return start;
+    }
+
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(a));
+    }
+
+    public int stationCount() { return stationIds.length; }
+    public String[] stationIds() { return stationIds.clone(); }
+    public String stationId(int ordinal) { return stationIds[ordinal]; }
+    public int stationOrdinal(String stationId) { return stationOrdinals.getOrDefault(stationId, -1); }
+
+    public int routeCount() { return routeLineIds.length; }
+    public String routeLineId(int route) { return routeLineIds[route]; }
+    public LineTimetable.StopPattern routePattern(int route) { return routePatterns[route]; }
+    public int routeStopCount(int route) { return routeStopStart[route + 1] - routeStopStart[route]; }
+    public int routeStop(int route, int position) { return routeStops[routeStopStart[route] + position]; }
+    public int routeStopOffset(int route, int position) { return routeStopOffsets[routeStopStart[route] + position]; }
+    public int routeTripCount(int route) { return routeTripStart[route + 1] - routeTripStart[route]; }
+    public int tripDeparture(int route, int trip) { return tripDepartures[routeTripStart[route] + trip]; }
+
+    // Earliest trip of the route leaving its first stop at or after the given minute, or -1
+    public int earliestTrip(int route, int firstStopMinute) {
+        int lo = routeTripStart[route];
+        int hi = routeTripStart[route + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tripDepartures[mid] < firstStopMinute) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == routeTripStart[route + 1] ? -1 : lo - routeTripStart[route];
+    }
+
+    public int stationRouteStart(int station) { return stationRouteStart[station]; }
+    public int stationRouteEnd(int station) { return stationRouteStart[station + 1]; }
+    public int stationRoute(int slot) { return stationRoutes[slot]; }
+    public int stationRoutePosition(int slot) { return stationRoutePositions[slot]; }
+
+    public int transferStart(int station) { return transferStart[station]; }
+    public int transferEnd(int station) { return transferStart[station + 1]; }
+    public int transferTarget(int slot) { return transferTargets[slot]; }
+    public int transferMinutes(int slot) { return transferMinutes[slot]; }
+}
@@ -0,0 +1,134 @@
+package com.opwa.opwa_be.planner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// All-pairs minimum in-vehicle minutes and hop counts, row-major by station ordinal.
+// Walking transfers join lines but add neither in-vehicle time nor hops.
+public final class TravelTimeMatrix {
+
+    public static final int UNREACHABLE = -1;
+
+    private final TransitNetwork network;
+    private final int[] minutes;
+    private final int[] hops;
+
+    private TravelTimeMatrix(TransitNetwork network, int[] minutes, int[] hops) {
+        this.network = network;
+        this.minutes = minutes;
+        this.hops = hops;
+    }
+
+    // Route stop positions to leave out of the graph, e.g. stations a suspension closes
+    @FunctionalInterface
+    public interface ClosedStops {
+        boolean isClosed(int route, int position);
+    }
+
+    public static TravelTimeMatrix compute(TransitNetwork network) {
+        int n = network.stationCount();
+        List<List<int[]>> edges = buildEdges(network, (route, position) -> false);
+        int[] minutes = new int[n * n];
+        int[] hops = new int[n * n];
+        Arrays.fill(minutes, UNREACHABLE);
+        Arrays.fill(hops, UNREACHABLE);
+        int[] bestMinutes = new int[n];
+        int[] bestHops = new int[n];
+        for (int source = 0; source < n; source++) {
+            shortestFrom(edges, source, bestMinutes, bestHops);
+            for (int target = 0; target < n; target++) {
+                if (bestMinutes[target] != Integer.MAX_VALUE) {
+                    minutes[source * n + target] = bestMinutes[target];
+                    hops[source * n + target] = bestHops[target];
+                }
+            }
+        }
+        return new TravelTimeMatrix(network, minutes, hops);
+    }
+
+    // Rows of the matrix for the given sources only, over the network without the closed stops'
+    // hops. Cheap enough for what-if questions where recomputing every row would not be.
+    public static int[][] minutesFrom(TransitNetwork network, ClosedStops closedStops, int[] sources) {
+        int n = network.stationCount();
+        List<List<int[]>> edges = buildEdges(network, closedStops);
+        int[][] rows = new int[sources.length][];
+        int[] bestMinutes = new int[n];
+        int[] bestHops = new int[n];
+        for (int i = 0; i < sources.length; i++) {
+            shortestFrom(edges, sources[i], bestMinutes, bestHops);
+            int[] row = new int[n];
+            for (int target = 0; target < n; target++) {
+                row[target] = bestMinutes[target] == Integer.MAX_VALUE ? UNREACHABLE : bestMinutes[target];
+            }
+            rows[i] = row;
+        }
+        return rows;
+    }
+
+    // Edges are {to, minutes, hops}; a hop touching a closed stop is dropped
+    private static List<List<int[]>> buildEdges(TransitNetwork network, ClosedStops closedStops) {
+        int n = network.stationCount();
+        List<List<int[]>> edges = new ArrayList<>();
+        for (int s = 0; s < n; s++) edges.add(new ArrayList<>());
+        for (int r = 0; r < network.routeCount(); r++) {
+            for (int p = 0; p + 1 < network.routeStopCount(r); p++) {
+                if (closedStops.isClosed(r, p) || closedStops.isClosed(r, p + 1)) continue;
+                int duration = network.routeStopOffset(r, p + 1) - network.routeStopOffset(r, p);
+                edges.get(network.routeStop(r, p)).add(new int[] {network.routeStop(r, p + 1), duration, 1});
+            }
+        }
+        for (int s = 0; s < n; s++) {
+            for (int slot = network.transferStart(s); slot < network.transferEnd(s); slot++) {
+                edges.get(s).add(new int[] {network.transferTarget(slot), 0, 0});
+            }
+        }
+        return edges;
+    }
+
+    private static void shortestFrom(List<List<int[]>> edges, int source, int[] bestMinutes, int[] bestHops) {
+        Arrays.fill(bestMinutes, Integer.MAX_VALUE);
+        Arrays.fill(bestHops, Integer.MAX_VALUE);
+        bestMinutes[source] = 0;
+        bestHops[source] = 0;
+        // Entries are {minutes, hops, station}; ties on time prefer fewer hops
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+        queue.add(new int[] {0, 0, source});
+        while (!queue.isEmpty()) {
+            int[] entry = queue.poll();
+            int station = entry[2];
+            if (entry[0] != bestMinutes[station] || entry[1] != bestHops[station]) continue;
+            for (int[] edge : edges.get(station)) {
+                int to = edge[0];
+                int m = entry[0] + edge[1];
+                int h = entry[1] + edge[2];
+                if (m < bestMinutes[to] || (m == bestMinutes[to] && h < bestHops[to])) {
+                    bestMinutes[to] = m;
+                    bestHops[to] = h;
+                    queue.add(new int[] {m, h, to});
+                }
+            }
+        }
+    }
+
+    public TransitNetwork getNetwork() {
+        return network;
+    }
+
+    public int[] getMinutes() {
+        return minutes;
+    }
+
+    public int[] getHops() {
+        return hops;
+    }
+
+    public int minutes(int from, int to) {
+        return minutes[from * network.stationCount() + to];
+    }
+
+    public int hops(int from, int to) {
+        return hops[from * network.stationCount() + to];
+    }
+}
@@ -0,0 +1,87 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.StationRepo;
+import com.opwa.opwa_be.event.StationChangedEvent;
+import com.opwa.opwa_be.model.Station;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StationSearchIndexTest {
+
+    // Ben Thanh, Ba Son, Thao Dien and Dong Khoi with their Vietnamese diacritics
+    private static final String BEN_THANH = "B\u1ebfn Th\u00e0nh";
+    private static final String BA_SON = "Ba Son";
+    private static final String THAO_DIEN = "Th\u1ea3o \u0110i\u1ec1n";
+    private static final String DONG_KHOI = "\u0110\u1ed3ng Kh\u1edfi";
+
+    private static StationSearchIndex index(Station... stations) {
+        StationRepo stationRepo = mock(StationRepo.class);
+        when(stationRepo.findAll()).thenReturn(List.of(stations));
+        StationSearchIndex index = new StationSearchIndex();
+        ReflectionTestUtils.setField(index, "stationRepo", stationRepo);
+        return index;
+    }
+
+    @Test
+    void foldStripsDiacriticsCaseAndPunctuation() {
+        assertEquals("ben thanh", StationSearchIndex.fold(BEN_THANH));
+        assertEquals("thao dien", StationSearchIndex.fold(THAO_DIEN));
+        assertEquals("dong khoi q 1", StationSearchIndex.fold("  " + DONG_KHOI + " - (Q.1) "));
+        assertEquals("", StationSearchIndex.fold(null));
+    }
+
+    @Test
+    void accentFoldedPrefixFindsTheStation() {
+        StationSearchIndex index = index(
+            station("ST1", BEN_THANH), station("ST2", BA_SON), station("ST3", THAO_DIEN), station("ST4", DONG_KHOI));
+
+        assertEquals(List.of("ST1"), ids(index.search("ben th", 10)));
+        assertEquals(List.of("ST3"), ids(index.search("\u0111ien", 10)));
+        assertEquals(List.of("ST4"), ids(index.search("DONG", 10)));
+    }
+
+    @Test
+    void tiersRankExactThenPrefixThenWordPrefixThenTypos() {
+        StationSearchIndex index = index(
+            station("ST1", "Son Tay"),
+            station("ST2", BA_SON),
+            station("ST3", "Son"),
+            station("ST4", "Song Hanh"));
+
+        // Exact, name prefix (shorter first), then a later word starting with the query
+        assertEquals(List.of("ST3", "ST1", "ST4", "ST2"), ids(index.search("son", 10)));
+        assertEquals(List.of("ST3", "ST1"), ids(index.search("son", 2)));
+        // Two edits away from "ba son" still finds it
+        assertEquals("ST2", ids(index.search("ba sin", 10)).get(0));
+    }
+
+    @Test
+    void stationWritesUpdateTheLoadedIndex() {
+        StationSearchIndex index = index(station("ST1", BEN_THANH));
+        assertEquals(List.of("ST1"), ids(index.search("ben", 10)));
+
+        index.onStationChanged(new StationChangedEvent("ST1", station("ST1", BA_SON)));
+
+        assertTrue(index.search("ben", 10).isEmpty());
+        assertEquals(List.of("ST1"), ids(index.search("ba", 10)));
+    }
+
+    private static List<String> ids(List<Station> stations) {
+        return stations.stream().map(Station::getStationId).toList();
+    }
+
+    private static Station station(String stationId, String name) {
+        Station station = new Station();
+        station.setStationId(stationId);
+        station.setStationName(name);
+        return station;
+    }
+}
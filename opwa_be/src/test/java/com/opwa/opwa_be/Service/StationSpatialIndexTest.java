@@ -0,0 +1,90 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.dto.NearbyStation;
+import com.opwa.opwa_be.model.Station;
+import com.opwa.opwa_be.planner.TransitNetwork;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StationSpatialIndexTest {
+
+    @Test
+    void nearestReturnsTheClosestStationsInOrder() {
+        List<Station> stations = List.of(
+            station("ST1", 10.7700, 106.7000),
+            station("ST2", 10.7710, 106.7000),
+            station("ST3", 10.7800, 106.7000),
+            station("ST4", 10.7698, 106.7002),
+            station("ST5", 10.9000, 106.9000));
+        StationSpatialIndex.Grid grid = StationSpatialIndex.Grid.build(stations, 0.005);
+
+        List<NearbyStation> nearest = grid.nearest(10.7701, 106.7000, 3);
+
+        assertEquals(List.of("ST1", "ST4", "ST2"), ids(nearest));
+        assertTrue(nearest.get(0).getDistanceMeters() <= nearest.get(1).getDistanceMeters());
+        assertTrue(nearest.get(1).getDistanceMeters() <= nearest.get(2).getDistanceMeters());
+    }
+
+    @Test
+    void nearestMatchesALinearScanInsideAndOutsideTheGrid() {
+        Random random = new Random(42);
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            stations.add(station("ST" + i, 10.7 + random.nextDouble() * 0.2, 106.6 + random.nextDouble() * 0.2));
+        }
+        StationSpatialIndex.Grid grid = StationSpatialIndex.Grid.build(stations, 0.005);
+
+        double[][] queries = {{10.8, 106.7}, {10.6, 106.7}, {10.95, 106.95}, {12.0, 108.0}, {-30.0, -60.0}};
+        for (double[] query : queries) {
+            List<String> expected = stations.stream()
+                .sorted(Comparator.comparingDouble(station -> TransitNetwork.distanceMeters(
+                    query[0], query[1], station.getLatitude(), station.getLongitude())))
+                .limit(5)
+                .map(Station::getStationId)
+                .toList();
+            assertEquals(expected, ids(grid.nearest(query[0], query[1], 5)));
+        }
+    }
+
+    @Test
+    void nearestCapsKAtTheStationCount() {
+        StationSpatialIndex.Grid grid = StationSpatialIndex.Grid.build(
+            List.of(station("ST1", 10.77, 106.70), station("ST2", 10.78, 106.70)), 0.01);
+
+        assertEquals(2, grid.nearest(10.77, 106.70, 10).size());
+    }
+
+    @Test
+    void withinKeepsOnlyStationsInsideTheBox() {
+        StationSpatialIndex.Grid grid = StationSpatialIndex.Grid.build(List.of(
+            station("ST1", 10.770, 106.700),
+            station("ST2", 10.775, 106.705),
+            station("ST3", 10.790, 106.700)), 0.01);
+
+        List<String> inside = grid.within(10.765, 106.695, 10.780, 106.710).stream()
+            .map(Station::getStationId)
+            .sorted()
+            .toList();
+        assertEquals(List.of("ST1", "ST2"), inside);
+    }
+
+    private static List<String> ids(List<NearbyStation> nearby) {
+        return nearby.stream().map(n -> n.getStation().getStationId()).toList();
+    }
+
+    private static Station station(String stationId, double latitude, double longitude) {
+        Station station = new Station();
+        station.setStationId(stationId);
+        station.setLatitude(latitude);
+        station.setLongitude(longitude);
+        return station;
+    }
+}
@@ -0,0 +1,125 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.Repository.SuspensionRepo;
+import com.opwa.opwa_be.event.SuspensionChangedEvent;
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Suspension;
+import com.opwa.opwa_be.model.Trip;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SuspensionOverlayTest {
+
+    private static final List<String> LN1_STATIONS = List.of("ST1", "ST2", "ST3", "ST4");
+
+    private static SuspensionOverlay overlay(Suspension... active) {
+        SuspensionRepo suspensionRepo = mock(SuspensionRepo.class);
+        when(suspensionRepo.findByIsActive(true)).thenReturn(List.of(active));
+        SuspensionOverlay overlay = new SuspensionOverlay();
+        ReflectionTestUtils.setField(overlay, "suspensionRepo", suspensionRepo);
+        return overlay;
+    }
+
+    @Test
+    void closedStationsAreScopedToTheirLine() {
+        SuspensionOverlay overlay = overlay(suspension("S1", "LN1", List.of("ST3")));
+
+        assertTrue(overlay.isStationSuspended("LN1", "ST3"));
+        assertFalse(overlay.isStationSuspended("LN1", "ST2"));
+        assertFalse(overlay.isStationSuspended("LN2", "ST3"));
+        assertFalse(overlay.isLineSuspended("LN1"));
+        assertEquals(Set.of("ST3"), overlay.getClosedStationIds(line("LN1")));
+    }
+
+    @Test
+    void ridesAreBlockedOnlyWhenTheyTouchAClosedStation() {
+        SuspensionOverlay overlay = overlay(suspension("S1", "LN1", List.of("ST3")));
+
+        assertTrue(overlay.blocksRide("LN1", LN1_STATIONS, 1, 3));
+        assertTrue(overlay.blocksRide("LN1", LN1_STATIONS, 2, 3));
+        assertFalse(overlay.blocksRide("LN1", LN1_STATIONS, 0, 1));
+    }
+
+    @Test
+    void applyFlagsSegmentsTouchingClosedStations() {
+        SuspensionOverlay overlay = overlay(suspension("S1", "LN1", List.of("ST3")));
+
+        Trip trip = overlay.apply(trip("LN1", LN1_STATIONS));
+
+        assertEquals(List.of(false, true, true),
+            trip.getSegments().stream().map(Trip.TripSegment::isSuspended).toList());
+    }
+
+    @Test
+    void noAffectedStationsClosesTheWholeLine() {
+        SuspensionOverlay overlay = overlay(suspension("S1", "LN1", List.of()));
+
+        assertTrue(overlay.isLineSuspended("LN1"));
+        assertTrue(overlay.blocksRide("LN1", LN1_STATIONS, 0, 1));
+        assertEquals(Set.copyOf(LN1_STATIONS), overlay.getClosedStationIds(line("LN1")));
+    }
+
+    @Test
+    void eventsUpdateTheBitsets() {
+        SuspensionOverlay overlay = overlay(suspension("S1", "LN1", List.of("ST3")));
+        assertTrue(overlay.isStationSuspended("LN1", "ST3"));
+
+        Suspension second = suspension("S2", "LN1", List.of("ST1"));
+        overlay.onSuspensionChanged(SuspensionChangedEvent.saved(second));
+        assertEquals(Set.of("ST1", "ST3"), overlay.getClosedStationIds(line("LN1")));
+
+        Suspension resolved = suspension("S1", "LN1", List.of("ST3"));
+        resolved.setActive(false);
+        overlay.onSuspensionChanged(SuspensionChangedEvent.saved(resolved));
+        assertFalse(overlay.isStationSuspended("LN1", "ST3"));
+        assertTrue(overlay.isStationSuspended("LN1", "ST1"));
+
+        overlay.onSuspensionChanged(SuspensionChangedEvent.allForLine("LN1"));
+        assertTrue(overlay.getClosedStationIds(line("LN1")).isEmpty());
+    }
+
+    private static Suspension suspension(String id, String lineId, List<String> affectedStationIds) {
+        Suspension suspension = new Suspension();
+        suspension.setId(id);
+        suspension.setMetroLineId(lineId);
+        suspension.setAffectedStationIds(affectedStationIds);
+        return suspension;
+    }
+
+    private static MetroLine line(String lineId) {
+        MetroLine line = new MetroLine();
+        line.setLineId(lineId);
+        line.setStationIds(LN1_STATIONS);
+        return line;
+    }
+
+    private static Trip trip(String lineId, List<String> stationIds) {
+        Trip trip = new Trip();
+        trip.setLineId(lineId);
+        List<Trip.TripSegment> segments = new ArrayList<>();
+        LocalTime time = LocalTime.of(8, 0);
+        for (int i = 0; i + 1 < stationIds.size(); i++) {
+            Trip.TripSegment segment = new Trip.TripSegment();
+            segment.setFromStationId(stationIds.get(i));
+            segment.setToStationId(stationIds.get(i + 1));
+            segment.setDepartureTime(time);
+            segment.setArrivalTime(time.plusMinutes(3));
+            segments.add(segment);
+            time = time.plusMinutes(3);
+        }
+        trip.setSegments(segments);
+        return trip;
+    }
+}
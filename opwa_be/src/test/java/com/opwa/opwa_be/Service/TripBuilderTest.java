@@ -0,0 +1,76 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Trip;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TripBuilderTest {
+
+    // ST1..ST5 at 5 minutes a hop, one run each way from 08:00
+    private static MetroLine line() {
+        MetroLine line = new MetroLine();
+        line.setLineId("LN1");
+        line.setStationIds(List.of("ST1", "ST2", "ST3", "ST4", "ST5"));
+        line.setTotalDuration(20);
+        line.setFirstDeparture(LocalDateTime.of(2025, 1, 1, 8, 0));
+        return line;
+    }
+
+    @Test
+    void shortTurnsSkipTheClosedSegment() {
+        List<Trip> trips = new TripBuilder().buildTrips(line(), LocalTime.of(8, 0), Set.of("ST3"));
+
+        assertEquals(List.of("LN1-0800-F", "LN1-0815-F", "LN1-0800-R", "LN1-0815-R"),
+            trips.stream().map(Trip::getTripId).toList());
+        assertEquals(List.of(List.of("ST1", "ST2"), List.of("ST4", "ST5"), List.of("ST5", "ST4"), List.of("ST2", "ST1")),
+            trips.stream().map(TripBuilderTest::stops).toList());
+        for (Trip trip : trips) {
+            assertTrue(trip.getSegments().stream().noneMatch(segment ->
+                segment.getFromStationId().equals("ST3") || segment.getToStationId().equals("ST3")));
+        }
+
+        // The second forward run keeps the original timings past the gap
+        Trip secondRun = trips.get(1);
+        assertEquals(LocalTime.of(8, 15), secondRun.getDepartureTime());
+        assertEquals(LocalTime.of(8, 20), secondRun.getArrivalTime());
+        assertEquals(trips.size(), new HashSet<>(trips.stream().map(Trip::getTripId).toList()).size());
+    }
+
+    @Test
+    void noClosedStationsKeepTheFullTimetable() {
+        TripBuilder tripBuilder = new TripBuilder();
+
+        assertEquals(tripBuilder.buildTrips(line(), LocalTime.of(9, 0)),
+            tripBuilder.buildTrips(line(), LocalTime.of(9, 0), Set.of()));
+    }
+
+    @Test
+    void closedStationsAreInTheSignature() {
+        TripBuilder tripBuilder = new TripBuilder();
+        String plain = tripBuilder.buildInputsSignature(line(), LocalTime.of(22, 0));
+
+        assertEquals(plain, tripBuilder.buildInputsSignature(line(), LocalTime.of(22, 0), Set.of()));
+        assertNotEquals(plain, tripBuilder.buildInputsSignature(line(), LocalTime.of(22, 0), Set.of("ST3")));
+        assertEquals(tripBuilder.buildInputsSignature(line(), LocalTime.of(22, 0), Set.of("ST3", "ST1")),
+            tripBuilder.buildInputsSignature(line(), LocalTime.of(22, 0), Set.of("ST1", "ST3")));
+    }
+
+    private static List<String> stops(Trip trip) {
+        List<String> stops = new ArrayList<>();
+        stops.add(trip.getSegments().get(0).getFromStationId());
+        trip.getSegments().forEach(segment -> stops.add(segment.getToStationId()));
+        return stops;
+    }
+}
@@ -0,0 +1,156 @@
+package com.opwa.opwa_be.Service;
+
+import com.opwa.opwa_be.dto.TripFilter;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Trip;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TripStorageServiceTest {
+
+    // Stands in for trips_<lineId>: evaluates the generated criteria and applies the sort and limit
+    private static TripStorageService service(List<Trip> stored) {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.find(any(Query.class), eq(Trip.class), eq(TripStorageService.collectionName("LN1"))))
+            .thenAnswer(invocation -> {
+                Query query = invocation.getArgument(0);
+                List<Trip> result = stored.stream()
+                    .filter(trip -> matches(query.getQueryObject(), trip))
+                    .sorted(Comparator.comparingInt(Trip::getDepartureMinute).thenComparing(Trip::getTripId))
+                    .toList();
+                return query.getLimit() > 0 && result.size() > query.getLimit()
+                    ? new ArrayList<>(result.subList(0, query.getLimit()))
+                    : new ArrayList<>(result);
+            });
+        TripStorageService service = new TripStorageService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "storageMode", TripStorageService.StorageMode.DOCUMENTS);
+        return service;
+    }
+
+    @Test
+    void pagesDoNotSkipOrRepeatTripsThatDepartTogether() {
+        List<Trip> stored = List.of(
+            trip("T1", 8, 0, false), trip("T2", 8, 0, false), trip("T3", 8, 0, true),
+            trip("T4", 8, 0, false), trip("T5", 8, 0, true), trip("T6", 8, 10, false), trip("T7", 8, 10, true));
+        TripStorageService service = service(stored);
+
+        List<List<String>> pages = new ArrayList<>();
+        TripFilter filter = new TripFilter();
+        filter.setLimit(2);
+        while (true) {
+            List<Trip> page = service.findTrips("LN1", filter);
+            if (page.isEmpty()) break;
+            pages.add(page.stream().map(Trip::getTripId).toList());
+            Trip last = page.get(page.size() - 1);
+            filter.setAfterDepartureMinute(last.getDepartureMinute());
+            filter.setAfterTripId(last.getTripId());
+        }
+
+        assertEquals(List.of(
+            List.of("T1", "T2"), List.of("T3", "T4"), List.of("T5", "T6"), List.of("T7")), pages);
+    }
+
+    @Test
+    void directionFilterRefillsAcrossPagesAtTheSameMinute() {
+        List<Trip> stored = List.of(
+            trip("T1", 8, 0, false), trip("T2", 8, 0, true), trip("T3", 8, 0, false),
+            trip("T4", 8, 0, true), trip("T5", 8, 10, true));
+        TripStorageService service = service(stored);
+
+        TripFilter filter = new TripFilter();
+        filter.setReturnTrip(true);
+        filter.setLimit(2);
+        List<Trip> first = service.findTrips("LN1", filter);
+        assertEquals(List.of("T2", "T4"), first.stream().map(Trip::getTripId).toList());
+
+        filter.setAfterDepartureMinute(first.get(1).getDepartureMinute());
+        filter.setAfterTripId(first.get(1).getTripId());
+        assertEquals(List.of("T5"), service.findTrips("LN1", filter).stream().map(Trip::getTripId).toList());
+    }
+
+    @Test
+    void timeWindowBoundsTheDeparture() {
+        TripStorageService service = service(List.of(
+            trip("T1", 7, 50, false), trip("T2", 8, 0, false), trip("T3", 8, 30, false), trip("T4", 9, 0, false)));
+
+        TripFilter filter = new TripFilter();
+        filter.setFrom(LocalTime.of(8, 0));
+        filter.setTo(LocalTime.of(8, 30));
+        List<Trip> trips = service.findTrips("LN1", filter);
+
+        assertEquals(List.of("T2", "T3"), trips.stream().map(Trip::getTripId).toList());
+        assertTrue(trips.stream().allMatch(trip -> !trip.getDepartureTime().isBefore(LocalTime.of(8, 0))));
+    }
+
+    // Only the operators tripCriteria emits without a station filter
+    @SuppressWarnings("unchecked")
+    private static boolean matches(Document criteria, Trip trip) {
+        for (Map.Entry<String, Object> entry : criteria.entrySet()) {
+            Object condition = entry.getValue();
+            boolean matched = switch (entry.getKey()) {
+                case "$and" -> ((List<Document>) condition).stream().allMatch(c -> matches(c, trip));
+                case "$or" -> ((List<Document>) condition).stream().anyMatch(c -> matches(c, trip));
+                default -> matchesField(fieldValue(entry.getKey(), trip), condition);
+            };
+            if (!matched) return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean matchesField(Object value, Object condition) {
+        if (!(condition instanceof Document operators)) return value.equals(condition);
+        for (Map.Entry<String, Object> operator : operators.entrySet()) {
+            int compared = ((Comparable) value).compareTo(operator.getValue());
+            boolean matched = switch (operator.getKey()) {
+                case "$gt" -> compared > 0;
+                case "$gte" -> compared >= 0;
+                case "$lte" -> compared <= 0;
+                default -> throw new IllegalArgumentException(operator.getKey());
+            };
+            if (!matched) return false;
+        }
+        return true;
+    }
+
+    private static Object fieldValue(String field, Trip trip) {
+        return switch (field) {
+            case "_id" -> trip.getTripId();
+            case "departureMinute" -> trip.getDepartureMinute();
+            case "arrivalMinute" -> trip.getArrivalMinute();
+            case "isReturnTrip" -> trip.isReturnTrip();
+            default -> throw new IllegalArgumentException(field);
+        };
+    }
+
+    private static Trip trip(String tripId, int hour, int minute, boolean returnTrip) {
+        Trip trip = new Trip();
+        trip.setTripId(tripId);
+        trip.setLineId("LN1");
+        trip.setReturnTrip(returnTrip);
+        trip.setDepartureTime(LocalTime.of(hour, minute));
+        trip.setArrivalTime(trip.getDepartureTime().plusMinutes(30));
+        trip.setDepartureMinute(LineTimetable.timeToMinutes(trip.getDepartureTime()));
+        trip.setArrivalMinute(LineTimetable.timeToMinutes(trip.getArrivalTime()));
+        trip.setSegments(List.of());
+        return trip;
+    }
+}
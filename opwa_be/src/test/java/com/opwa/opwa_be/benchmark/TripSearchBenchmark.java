@@ -0,0 +1,113 @@
+package com.opwa.opwa_be.benchmark;
+
+import com.opwa.opwa_be.Service.TripBuilder;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.MetroLine;
+import com.opwa.opwa_be.model.Station;
+import com.opwa.opwa_be.model.Trip;
+import com.opwa.opwa_be.planner.ConnectionScanRouter;
+import com.opwa.opwa_be.planner.TransitNetwork;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Compares the Connection Scan profile query with the original searchTrips trip/segment scan.
+// Run with: mvn test-compile, then start main() from the IDE (or with the test classpath).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TripSearchBenchmark {
+
+    private static final int LINES = 20;
+    private static final int STATIONS_PER_LINE = 25;
+
+    private List<Trip> trips;
+    private ConnectionScanRouter connectionScan;
+    private String fromStationId;
+    private String toStationId;
+
+    @Setup
+    public void setUp() {
+        TripBuilder tripBuilder = new TripBuilder();
+        List<Station> stations = new ArrayList<>();
+        List<LineTimetable> timetables = new ArrayList<>();
+        trips = new ArrayList<>();
+        for (int l = 0; l < LINES; l++) {
+            List<String> stationIds = new ArrayList<>();
+            for (int s = 0; s < STATIONS_PER_LINE; s++) {
+                Station station = new Station();
+                station.setStationId("ST" + (l * STATIONS_PER_LINE + s + 1));
+                station.setLatitude(10.7 + l * 0.05);
+                station.setLongitude(106.6 + s * 0.01);
+                stations.add(station);
+                stationIds.add(station.getStationId());
+            }
+            MetroLine line = new MetroLine();
+            line.setLineId("LN" + (l + 1));
+            line.setStationIds(stationIds);
+            line.setFrequencyMinutes("3");
+            line.setTotalDuration((STATIONS_PER_LINE - 1) * 3);
+            line.setFirstDeparture(LocalDateTime.now().with(LocalTime.of(5, 0)));
+            List<Trip> lineTrips = tripBuilder.buildTrips(line, TripBuilder.DEFAULT_LAST_DEPARTURE);
+            trips.addAll(lineTrips);
+            timetables.add(LineTimetable.fromTrips(line.getLineId(), lineTrips));
+        }
+        TransitNetwork network = TransitNetwork.build(timetables, stations, 300, 2);
+        connectionScan = ConnectionScanRouter.build(trips, network);
+        fromStationId = "ST3";
+        toStationId = "ST20";
+    }
+
+    @Benchmark
+    public Object connectionScanProfile() {
+        return connectionScan.profile(fromStationId, toStationId, 7 * 60, 9 * 60);
+    }
+
+    // The searchTrips loop as it was before the station index: every trip, every segment
+    @Benchmark
+    public Object searchTripsScan() {
+        LocalTime approx = LocalTime.of(8, 0);
+        List<Trip> result = new ArrayList<>();
+        for (Trip trip : trips) {
+            List<Trip.TripSegment> segments = trip.getSegments();
+            int fromIdx = -1, toIdx = -1;
+            for (int i = 0; i < segments.size(); i++) {
+                if (segments.get(i).getFromStationId().equals(fromStationId)) fromIdx = i;
+                if (segments.get(i).getToStationId().equals(toStationId)) toIdx = i;
+            }
+            if (fromIdx != -1 && toIdx != -1 && fromIdx < toIdx) {
+                LocalTime dep = segments.get(fromIdx).getDepartureTime();
+                if (Math.abs(java.time.Duration.between(dep, approx).toMinutes()) > 15) {
+                    continue;
+                }
+                result.add(trip);
+            }
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(TripSearchBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.opwa.opwa_be.planner;
+
+import com.opwa.opwa_be.dto.ProfileEntry;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Station;
+import com.opwa.opwa_be.model.Trip;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.opwa.opwa_be.planner.RaptorRouterTest.station;
+import static com.opwa.opwa_be.planner.RaptorRouterTest.timetable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionScanRouterTest {
+
+    // The stopping line A takes 10 minutes from S1 to S3; the express X takes 3
+    private static ConnectionScanRouter router() {
+        List<LineTimetable> timetables = List.of(
+            timetable("A", List.of("S1", "S2", "S3"), new int[] {0, 5, 10}, new int[] {480, 500, 520}),
+            timetable("X", List.of("S1", "S3"), new int[] {0, 3}, new int[] {485}));
+        List<Station> stations = List.of(
+            station("S1", 10.70, 106.60),
+            station("S2", 10.72, 106.60),
+            station("S3", 10.74, 106.60));
+        List<Trip> trips = new ArrayList<>();
+        timetables.forEach(timetable -> trips.addAll(timetable.toTrips()));
+        return ConnectionScanRouter.build(trips, TransitNetwork.build(timetables, stations, 300, 2));
+    }
+
+    @Test
+    void profileKeepsOnlyParetoOptimalDepartures() {
+        List<ProfileEntry> profile = router().profile("S1", "S3", 470, 530);
+
+        // 08:00 -> 08:10 is dominated by the later 08:05 express arriving 08:08
+        assertEquals(List.of(
+            new ProfileEntry(LocalTime.of(8, 5), LocalTime.of(8, 8), 3),
+            new ProfileEntry(LocalTime.of(8, 20), LocalTime.of(8, 30), 10),
+            new ProfileEntry(LocalTime.of(8, 40), LocalTime.of(8, 50), 10)), profile);
+    }
+
+    @Test
+    void profileIsLimitedToTheWindow() {
+        List<ProfileEntry> profile = router().profile("S1", "S3", 490, 505);
+
+        assertEquals(List.of(new ProfileEntry(LocalTime.of(8, 20), LocalTime.of(8, 30), 10)), profile);
+    }
+
+    @Test
+    void unknownOrIdenticalStationsHaveNoProfile() {
+        assertTrue(router().profile("S1", "S1", 470, 530).isEmpty());
+        assertTrue(router().profile("S1", "NOPE", 470, 530).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package com.opwa.opwa_be.planner;
+
+import com.opwa.opwa_be.dto.JourneyOption;
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Station;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RaptorRouterTest {
+
+    // Line A runs A1-A2-A3, line B runs B1-B2; A3 and B1 are about 100 m apart, everything else is far
+    private static TransitNetwork network() {
+        List<LineTimetable> timetables = List.of(
+            timetable("A", List.of("A1", "A2", "A3"), new int[] {0, 5, 10}, new int[] {480, 500}),
+            timetable("B", List.of("B1", "B2"), new int[] {0, 4}, new int[] {485, 495, 515}));
+        List<Station> stations = List.of(
+            station("A1", 10.70, 106.60),
+            station("A2", 10.72, 106.60),
+            station("A3", 10.74, 106.60),
+            station("B1", 10.7409, 106.60),
+            station("B2", 10.76, 106.60));
+        return TransitNetwork.build(timetables, stations, 300, 2);
+    }
+
+    @Test
+    void transferJourneyRidesWalksAndRidesAgain() {
+        List<JourneyOption> options = new RaptorRouter(network()).route("A1", "B2", 480, 2);
+
+        assertEquals(1, options.size());
+        JourneyOption option = options.get(0);
+        assertEquals(1, option.getTransfers());
+        assertEquals(LocalTime.of(8, 0), option.getDepartureTime());
+        // A1 08:00 -> A3 08:10, walk to B1 by 08:12, then the 08:15 B train to B2
+        assertEquals(LocalTime.of(8, 19), option.getArrivalTime());
+
+        List<JourneyOption.Leg> legs = option.getLegs();
+        assertEquals(List.of(JourneyOption.Leg.Mode.RIDE, JourneyOption.Leg.Mode.WALK, JourneyOption.Leg.Mode.RIDE),
+            legs.stream().map(JourneyOption.Leg::getMode).toList());
+        assertEquals("A", legs.get(0).getLineId());
+        assertEquals("A3", legs.get(0).getToStationId());
+        assertEquals("B1", legs.get(1).getToStationId());
+        assertEquals("B", legs.get(2).getLineId());
+        assertEquals(LocalTime.of(8, 15), legs.get(2).getDepartureTime());
+    }
+
+    @Test
+    void noTransfersAllowedFindsNothingAcrossLines() {
+        assertTrue(new RaptorRouter(network()).route("A1", "B2", 480, 0).isEmpty());
+    }
+
+    @Test
+    void directRideNeedsNoTransfer() {
+        List<JourneyOption> options = new RaptorRouter(network()).route("A1", "A3", 481, 0);
+
+        assertEquals(1, options.size());
+        assertEquals(0, options.get(0).getTransfers());
+        assertEquals(LocalTime.of(8, 20), options.get(0).getDepartureTime());
+        assertEquals(LocalTime.of(8, 30), options.get(0).getArrivalTime());
+    }
+
+    static LineTimetable timetable(String lineId, List<String> stationIds, int[] stopOffsets, int[] departureMinutes) {
+        LineTimetable.StopPattern pattern = new LineTimetable.StopPattern();
+        pattern.setStationIds(stationIds);
+        pattern.setStopOffsets(stopOffsets);
+        pattern.setDepartureMinutes(departureMinutes);
+        LineTimetable timetable = new LineTimetable();
+        timetable.setLineId(lineId);
+        timetable.setPatterns(List.of(pattern));
+        return timetable;
+    }
+
+    static Station station(String stationId, double latitude, double longitude) {
+        Station station = new Station();
+        station.setStationId(stationId);
+        station.setLatitude(latitude);
+        station.setLongitude(longitude);
+        return station;
+    }
+}
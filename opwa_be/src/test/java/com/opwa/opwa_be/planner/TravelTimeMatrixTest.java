@@ -0,0 +1,65 @@
+package com.opwa.opwa_be.planner;
+
+import com.opwa.opwa_be.model.LineTimetable;
+import com.opwa.opwa_be.model.Station;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.opwa.opwa_be.planner.RaptorRouterTest.station;
+import static com.opwa.opwa_be.planner.RaptorRouterTest.timetable;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TravelTimeMatrixTest {
+
+    // Line A runs S1-S2-S3-S4 at 2 minutes a hop, line B runs S1-S5-S4 in 10; S4 and W are 100 m apart
+    private static TransitNetwork network() {
+        List<LineTimetable> timetables = List.of(
+            timetable("A", List.of("S1", "S2", "S3", "S4"), new int[] {0, 2, 4, 6}, new int[] {480}),
+            timetable("B", List.of("S1", "S5", "S4"), new int[] {0, 5, 10}, new int[] {480}),
+            timetable("C", List.of("W", "S6"), new int[] {0, 7}, new int[] {480}));
+        List<Station> stations = List.of(
+            station("S1", 10.70, 106.60),
+            station("S2", 10.72, 106.60),
+            station("S3", 10.74, 106.60),
+            station("S4", 10.76, 106.60),
+            station("S5", 10.78, 106.60),
+            station("W", 10.7609, 106.60),
+            station("S6", 10.80, 106.60));
+        return TransitNetwork.build(timetables, stations, 300, 2);
+    }
+
+    @Test
+    void minutesAndHopsFollowTheFastestRides() {
+        TransitNetwork network = network();
+        TravelTimeMatrix matrix = TravelTimeMatrix.compute(network);
+        int s1 = network.stationOrdinal("S1");
+        int s4 = network.stationOrdinal("S4");
+        int s6 = network.stationOrdinal("S6");
+
+        assertEquals(6, matrix.minutes(s1, s4));
+        assertEquals(3, matrix.hops(s1, s4));
+        // The walk from S4 to W adds neither minutes nor hops
+        assertEquals(13, matrix.minutes(s1, s6));
+        assertEquals(4, matrix.hops(s1, s6));
+        assertEquals(0, matrix.minutes(s4, s4));
+        // Lines only run one way
+        assertEquals(TravelTimeMatrix.UNREACHABLE, matrix.minutes(s4, s1));
+    }
+
+    @Test
+    void closedStopsReroute() {
+        TransitNetwork network = network();
+        int s1 = network.stationOrdinal("S1");
+        int s4 = network.stationOrdinal("S4");
+        int s5 = network.stationOrdinal("S5");
+        int s3 = network.stationOrdinal("S3");
+        TravelTimeMatrix.ClosedStops closeS3 = (route, position) -> network.routeStop(route, position) == s3;
+        TravelTimeMatrix.ClosedStops closeS3AndS5 = (route, position) ->
+            network.routeStop(route, position) == s3 || network.routeStop(route, position) == s5;
+
+        assertEquals(10, TravelTimeMatrix.minutesFrom(network, closeS3, new int[] {s1})[0][s4]);
+        assertEquals(TravelTimeMatrix.UNREACHABLE, TravelTimeMatrix.minutesFrom(network, closeS3AndS5, new int[] {s1})[0][s4]);
+    }
+}